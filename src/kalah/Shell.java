@@ -3,13 +3,23 @@ package kalah;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
 import kalah.exceptions.IllegalMoveException;
+import kalah.minimax.EndgameTablebase;
+import kalah.minimax.OpeningBook;
+import kalah.minimax.SearchStats;
 import kalah.model.Board;
 import kalah.model.BoardImpl;
+import kalah.model.EvalParams;
 import kalah.model.Player;
+import kalah.protocol.Protocol;
+import kalah.protocol.ProtocolFormat;
+import kalah.protocol.Session;
 import kalah.util.UserCommunication;
 
 /**
@@ -21,9 +31,15 @@ public final class Shell {
 
     private static Board game = null;
     private static int level = 3;
+    private static long timeBudget = 0;
     private static int pitsPerPlayer = 6;
     private static int seedsPerPit = 4;
     private static Player openingPlayer = Player.HUMAN;
+    private static EndgameTablebase tablebase = null;
+    private static OpeningBook book = null;
+    private static EvalParams evalParams = EvalParams.DEFAULT;
+    private static boolean machineMoved = false;
+    private static SearchStats lastSearch = null;
 
     private Shell() {
     }
@@ -32,13 +48,59 @@ public final class Shell {
      * This is the main method which instantiates the Board implementation and
      * the BufferedReader accepting user input.
      *
-     * @param args These are unused for this application.
+     * @param args Optionally {@code --tablebase <file>} to let the machine
+     *        use an endgame tablebase, {@code --book <file>} to let it use an
+     *        opening book, {@code --eval <file>} to let it use other
+     *        evaluation parameters and {@code --protocol json} or
+     *        {@code --protocol compact} to read commands in the
+     *        machine-readable protocol of {@link Session} instead of
+     *        interactively.
      * @throws IOException Thrown on input error.
      */
     public static void main(String[] args) throws IOException {
+        ProtocolFormat format = null;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--tablebase")) {
+                try {
+                    tablebase = EndgameTablebase.open(Paths.get(args[++i]));
+                } catch (IOException e) {
+                    System.out.format(UserCommunication.TABLEBASE_UNREADABLE,
+                        e.getMessage());
+                }
+            } else if (args[i].equals("--book")) {
+                try {
+                    book = OpeningBook.read(Paths.get(args[++i]));
+                } catch (IOException e) {
+                    System.out.format(UserCommunication.BOOK_UNREADABLE,
+                        e.getMessage());
+                }
+            } else if (args[i].equals("--eval")) {
+                try {
+                    evalParams = EvalParams.read(Paths.get(args[++i]));
+                } catch (IOException e) {
+                    System.out.format(UserCommunication.EVAL_UNREADABLE,
+                        e.getMessage());
+                }
+            } else if (args[i].equals("--protocol")) {
+                try {
+                    format = ProtocolFormat.valueOf(args[++i].toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    System.out.format(UserCommunication.PROTOCOL_UNKNOWN,
+                        args[i]);
+                    return;
+                }
+            }
+        }
+
         BufferedReader reader =
             new BufferedReader(new InputStreamReader(System.in));
-        execute(reader);
+        if (format != null) {
+            Protocol.run(reader, new OutputStreamWriter(System.out,
+                StandardCharsets.UTF_8), new Session(tablebase, book,
+                evalParams), format);
+        } else {
+            execute(reader);
+        }
     }
 
     private static void execute(BufferedReader reader) throws IOException {
@@ -93,6 +155,11 @@ public final class Shell {
 
                 game = new BoardImpl(openingPlayer, pitsPerPlayer, seedsPerPit,
                     level);
+                game.setTimeBudget(timeBudget);
+                game.setTablebase(tablebase);
+                game.setOpeningBook(book);
+                game.setEvalParams(evalParams);
+                machineMoved = false;
                 break;
             case 'L':
                 if (game != null) {
@@ -102,6 +169,14 @@ public final class Shell {
                     System.out.println(getError(300));
                 }
                 break;
+            case 'T':
+                if (game != null) {
+                    timeBudget = args.get("time");
+                    game.setTimeBudget(timeBudget);
+                } else {
+                    System.out.println(getError(300));
+                }
+                break;
             case 'M':
                 if (game != null) {
                     try {
@@ -132,11 +207,18 @@ public final class Shell {
                 }
                 break;
             case 'S':
-                if (game != null) {
+                if (command.toUpperCase().startsWith("ST")) {
+                    showStats();
+                } else if (game != null) {
                     openingPlayer = Player.getOpponent(openingPlayer);
 
                     game = new BoardImpl(openingPlayer, pitsPerPlayer,
                         seedsPerPit, level);
+                    game.setTimeBudget(timeBudget);
+                    game.setTablebase(tablebase);
+                    game.setOpeningBook(book);
+                    game.setEvalParams(evalParams);
+                    machineMoved = false;
 
                     if (game.getOpeningPlayer() == Player.MACHINE) {
                         machineMove();
@@ -247,6 +329,26 @@ public final class Shell {
                     params.put("error", 1);
                 }
                 break;
+            case 'T':
+                if (args.length > 1) {
+                    try {
+                        int time = Integer.parseInt(args[1]);
+
+                        if (time >= 0) {
+                            params.put("time", time);
+                        } else {
+                            System.out.println(getError(107));
+                            params.put("error", 1);
+                        }
+                    } catch (NumberFormatException nfe) {
+                        System.out.println(getError(106));
+                        params.put("error", 1);
+                    }
+                } else {
+                    System.out.println(getError(202));
+                    params.put("error", 1);
+                }
+                break;
             default:
                 break;
         }
@@ -272,6 +374,8 @@ public final class Shell {
      */
     private static void machineMove() {
         game = game.machineMove();
+        machineMoved = true;
+        lastSearch = game.getSearchStats();
         System.out.format(UserCommunication.MACHINE_MOVE,
             game.sourcePitOfLastMove(), game.targetPitOfLastMove());
 
@@ -282,6 +386,27 @@ public final class Shell {
         }
     }
 
+    /**
+     * Prints the statistics of the search which chose the last move of the
+     * machine.
+     */
+    private static void showStats() {
+        if (!machineMoved) {
+            System.out.println(getError(404));
+        } else if (lastSearch == null) {
+            System.out.println(UserCommunication.BOOK_MOVE);
+        } else {
+            System.out.format(UserCommunication.SEARCH_STATS,
+                lastSearch.getNodes(), lastSearch.getExpandedNodes(),
+                lastSearch.getLeaves(), lastSearch.getMaxDepth(),
+                lastSearch.getElapsedNanos() / 1_000_000,
+                lastSearch.getNodesPerSecond(),
+                lastSearch.getBranchingFactor(), lastSearch.getCutoffs(),
+                lastSearch.getFirstMoveCutoffs(), lastSearch.getTableHits(),
+                lastSearch.getTableProbes());
+        }
+    }
+
     /**
      * Checks the board for the winner of a game and prints an appropriate
      * message on the screen.
@@ -310,11 +435,15 @@ public final class Shell {
         System.out.println("\tnew <p> <s> \t\tStart a new game with <p> "
             + "pits and <s> seeds per pit.");
         System.out.println("\tlevel <i> \t\t\tSet the level 1-7.");
+        System.out.println("\ttime <ms> \t\t\tLet the machine search "
+            + "<ms> milliseconds per move, 0 to use the level.");
         System.out.println("\tmove <p> \t\t\t\t"
             + "Moves the seeds of pit <p>.");
         System.out.println("\tswitch\t\t\t\t\tStarts a new game and "
             + "lets the second player open the game.");
         System.out.println("\tprint\t\t\t\t\t\tPrints out the board.");
+        System.out.println("\tstats\t\t\t\t\t\tShows the statistics of "
+            + "the machine's last search.");
         System.out.println("\thelp\t\t\t\t\t\tShows this help message.");
         System.out.println("\tquit\t\t\t\t\t\tExit the program.");
     }
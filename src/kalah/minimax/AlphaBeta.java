@@ -0,0 +1,452 @@
+package kalah.minimax;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import kalah.exceptions.IllegalMoveException;
+import kalah.model.BoardImpl;
+import kalah.model.Player;
+import kalah.model.UndoRecord;
+
+/**
+ * Alpha-beta search over the same evaluation tree as {@link Minimax}. The total
+ * score of a board is its local score plus the best child score, so the bounds
+ * of a board are shifted by its local score before they are handed down to the
+ * children. The search is fail-soft: a returned score within the bounds is
+ * exact, a score at or below alpha is an upper bound and a score at or above
+ * beta is a lower bound of the total score.
+ *
+ * The scores are the local scores of {@link Minimax} scaled to integers by
+ * {@link BoardImpl#calcScaledScore(int)}, so shifting the bounds is exact and
+ * the search does no floating-point arithmetic at all. Up to depth 8 the
+ * scaled scores are exact multiples of the original ones, which therefore
+ * compare the same way, so the search picks the same move as
+ * {@link Minimax} up to level 8. Beyond that, the victory scores are rounded
+ * to integers, and sums of them which differ by less than one unit, e.g., a
+ * victory of the human at depth 29 and one of the machine at depth 47 added
+ * to the other scores, can compare as equal where {@link Minimax} prefers one
+ * of them. The tie may then be resolved in favour of a different move.
+ *
+ * The moves are searched in the order of a {@link MoveOrdering}. Since this
+ * order differs from the ascending pit order of {@link Minimax}, the root
+ * resolves equal scores in favour of the lower pit number explicitly.
+ *
+ * If a {@link ScoreTable} is given, the total score of every searched
+ * board which is no leaf is stored in it, together with the information
+ * whether the score is exact or a bound. A board reached again by a different
+ * order of moves reuses the stored score if it is exact or a bound outside of
+ * the current window, otherwise its stored best move is searched first.
+ *
+ * With an {@link EndgameTablebase}, a board it covers is scored like a board
+ * on which the game is over with the winner of perfect play.
+ *
+ * Besides searching up to its level, the search can be limited to a lower
+ * depth and to a deadline, which {@link IterativeDeepening} uses to deepen
+ * level by level with the same move ordering and transposition table. Another
+ * thread can stop the search as well, which {@link LazySmp} uses for its
+ * helper threads.
+ */
+public class AlphaBeta implements Search {
+
+    /**
+     * A bound beyond every total score, which still leaves room to shift it
+     * by local scores without overflow.
+     */
+    static final long INFINITY = Long.MAX_VALUE / 4;
+
+    /**
+     * The number of visited boards between two checks of the deadline.
+     */
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    private final int maxLevel;
+    private int level;
+    private long deadline;
+    private boolean horizonReached;
+    private int abortDepth;
+    private final UndoRecord[] records;
+    private final MoveOrdering ordering;
+    private final ScoreTable table;
+    private final ScoreTable.Entry entry = new ScoreTable.Entry();
+    private final AtomicBoolean stopFlag;
+    private EndgameTablebase tablebase;
+    private long nodeCount;
+    private long leafCount;
+    private long tableProbes;
+    private long tableHits;
+    private int maxDepth;
+    private long startNanos;
+    private long elapsedNanos;
+
+    /**
+     * Instantiates a new {@link AlphaBeta} object which orders the moves and
+     * uses no transposition table.
+     *
+     * @param level The maximum depth of the evaluation tree.
+     */
+    public AlphaBeta(int level) {
+        this(level, true, null);
+    }
+
+    /**
+     * Instantiates a new {@link AlphaBeta} object.
+     *
+     * @param level The maximum depth of the evaluation tree.
+     * @param orderMoves {@code false} to search the moves in ascending pit
+     *        order.
+     * @param table The transposition table to use, {@code null} for none.
+     */
+    public AlphaBeta(int level, boolean orderMoves, ScoreTable table) {
+        this(level, new MoveOrdering(level, orderMoves), table, null);
+    }
+
+    /**
+     * Instantiates a new {@link AlphaBeta} object which can be stopped by
+     * another thread.
+     *
+     * @param level The maximum depth of the evaluation tree.
+     * @param ordering The move ordering for this search alone.
+     * @param table The transposition table to use, {@code null} for none.
+     * @param stopFlag A flag which stops the search like a passed deadline
+     *        once it is set, {@code null} for none.
+     */
+    AlphaBeta(int level, MoveOrdering ordering, ScoreTable table,
+        AtomicBoolean stopFlag) {
+        this.maxLevel = level;
+        this.level = level;
+        this.records = new UndoRecord[level];
+        for (int i = 0; i < level; i++) {
+            records[i] = new UndoRecord();
+        }
+        this.ordering = ordering;
+        this.table = table;
+        this.stopFlag = stopFlag;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Like {@link Minimax#bestMove(BoardImpl)}, the move with the lowest pit
+     * number wins on equal scores.
+     */
+    @Override
+    public int bestMove(BoardImpl board) {
+        if (table != null) {
+            table.newSearch();
+        }
+        return bestMove(board, maxLevel, 0, 0);
+    }
+
+    /**
+     * Finds the best move for the player on turn, searching at most to a
+     * given depth and giving up once a deadline has passed.
+     *
+     * @param board The board to find the best move on.
+     * @param depthLimit The maximum depth of the evaluation tree, at most the
+     *        level of this search.
+     * @param firstMove A move to search first, e.g., the best move of a
+     *        previous search, {@code 0} for none.
+     * @param deadline The value of {@link System#nanoTime()} at which the
+     *        search gives up, {@code 0} for none.
+     * @return The number of the pit to sow, {@code 0} if the deadline passed
+     *         or the search has been stopped. The board is restored in either
+     *         case.
+     * @throws IllegalMoveException If the game is already over.
+     */
+    int bestMove(BoardImpl board, int depthLimit, int firstMove,
+        long deadline) {
+        if (board.isGameOver()) {
+            throw new IllegalMoveException("Error! The game is already over!");
+        }
+        prepare(board, depthLimit, deadline);
+
+        int bestPit = 0;
+        long bestScore = -INFINITY;
+        int[] moves = ordering.orderMoves(board, 0, firstMove);
+        for (int i = 0; i < moves.length && moves[i] != 0; i++) {
+            int pit = moves[i];
+
+            // A score below the best one is just an upper bound, but suffices
+            // to reject the move. Equal scores must be exact to compare the
+            // pit numbers, hence the window starts right below the best score.
+            board.applyMove(pit, records[0]);
+            long score;
+            try {
+                score = score(board, 1, bestScore - 1, INFINITY);
+            } catch (DeadlineException e) {
+                // Take back all moves on the path to the aborted board.
+                for (int depth = abortDepth - 1; depth >= 0; depth--) {
+                    board.undoMove(records[depth]);
+                }
+                elapsedNanos = System.nanoTime() - startNanos;
+                return 0;
+            }
+            board.undoMove(records[0]);
+
+            if (bestPit == 0 || score > bestScore
+                || (score == bestScore && pit < bestPit)) {
+                bestPit = pit;
+                bestScore = score;
+            }
+        }
+
+        elapsedNanos = System.nanoTime() - startNanos;
+        return bestPit;
+    }
+
+    /**
+     * Calculates the total score of a single move of the player on turn within
+     * the bounds {@code alpha} and {@code beta}, like the root of
+     * {@link #bestMove(BoardImpl)} does for each move. This lets several
+     * searches share the moves of one board.
+     *
+     * @param board The board to execute the move on.
+     * @param pit The source pit of the move.
+     * @param alpha The score already achieved by another move.
+     * @param beta The score the opponent already can achieve elsewhere.
+     * @return The total score of the move, or a bound of it if it lies outside
+     *         of ({@code alpha}, {@code beta}). The board is restored.
+     */
+    long scoreMove(BoardImpl board, int pit, long alpha, long beta) {
+        prepare(board, maxLevel, 0);
+        board.applyMove(pit, records[0]);
+        long score = score(board, 1, alpha, beta);
+        board.undoMove(records[0]);
+        elapsedNanos = System.nanoTime() - startNanos;
+        return score;
+    }
+
+    /**
+     * Resets the limits and statistics for a new search.
+     *
+     * @param board The board which is going to be searched.
+     * @param depthLimit The maximum depth of the evaluation tree.
+     * @param deadline The value of {@link System#nanoTime()} at which the
+     *        search gives up, {@code 0} for none.
+     */
+    private void prepare(BoardImpl board, int depthLimit, long deadline) {
+        this.level = Math.min(depthLimit, maxLevel);
+        this.deadline = deadline;
+        this.horizonReached = false;
+        nodeCount = 0;
+        leafCount = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        maxDepth = 0;
+        startNanos = System.nanoTime();
+        ordering.prepare(board);
+    }
+
+    /**
+     * Recursively calculates the total score of a board within the bounds
+     * {@code alpha} and {@code beta}. All children are explored in place on the
+     * given board.
+     *
+     * @param board The board to evaluate.
+     * @param depth The current depth of the board in the evaluation tree.
+     * @param alpha The score the caller already can achieve elsewhere.
+     * @param beta The score the caller's opponent already can achieve
+     *        elsewhere.
+     * @return The total score of the board, or a bound of it if it lies outside
+     *         of ({@code alpha}, {@code beta}).
+     */
+    public long score(BoardImpl board, int depth, long alpha, long beta) {
+        nodeCount++;
+        if ((deadline != 0 || stopFlag != null)
+            && nodeCount % DEADLINE_CHECK_INTERVAL == 0 && mustStop()) {
+            abortDepth = depth;
+            throw DeadlineException.INSTANCE;
+        }
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+
+        Player player = board.getOpeningPlayer();
+        boolean gameOver = board.isGameOver() || player == Player.NONE;
+        if (tablebase != null && !gameOver) {
+            Player winner = tablebase.getWinner(board);
+            if (winner != null) {
+                leafCount++;
+                return board.calcScaledVictoryScore(winner, depth);
+            }
+        }
+        if (depth == level || gameOver) {
+            horizonReached |= depth == level;
+            leafCount++;
+            return board.calcScaledScore(depth);
+        }
+
+        int remainingDepth = level - depth;
+        int hashMove = 0;
+        if (table != null) {
+            tableProbes++;
+            if (table.probe(board.getHash(), depth, remainingDepth, entry)) {
+                tableHits++;
+                long score = entry.getScore();
+                int bound = entry.getBound();
+                if (bound == ScoreTable.EXACT
+                    || (bound == ScoreTable.LOWER && score >= beta)
+                    || (bound == ScoreTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+                hashMove = entry.getMove();
+            }
+        }
+
+        long localScore = board.calcScaledScore(depth);
+
+        // The bounds for the child scores, which are added to the local score.
+        long childAlpha = alpha - localScore;
+        long childBeta = beta - localScore;
+
+        UndoRecord record = records[depth];
+        boolean hasChild = false;
+        long bestScore = 0;
+        int bestPit = 0;
+        int[] moves = ordering.orderMoves(board, depth, hashMove);
+        ordering.recordExpansion();
+        for (int i = 0; i < moves.length && moves[i] != 0; i++) {
+            int pit = moves[i];
+            board.applyMove(pit, record);
+            long score;
+            if (player == Player.MACHINE) {
+                score = score(board, depth + 1,
+                    hasChild ? Math.max(childAlpha, bestScore) : childAlpha,
+                    childBeta);
+            } else {
+                score = score(board, depth + 1, childAlpha,
+                    hasChild ? Math.min(childBeta, bestScore) : childBeta);
+            }
+            board.undoMove(record);
+
+            if (!hasChild
+                || (player == Player.MACHINE && score > bestScore)
+                || (player == Player.HUMAN && score < bestScore)) {
+                bestScore = score;
+                bestPit = pit;
+                hasChild = true;
+            }
+
+            // The opponent avoids this board anyway.
+            if ((player == Player.MACHINE && bestScore >= childBeta)
+                || (player == Player.HUMAN && bestScore <= childAlpha)) {
+                ordering.recordCutoff(depth, pit, remainingDepth, i);
+                break;
+            }
+        }
+
+        if (!hasChild) {
+            leafCount++;
+            return localScore;
+        }
+
+        long totalScore = bestScore + localScore;
+        if (table != null) {
+            int bound = ScoreTable.EXACT;
+            if (totalScore <= alpha) {
+                bound = ScoreTable.UPPER;
+            } else if (totalScore >= beta) {
+                bound = ScoreTable.LOWER;
+            }
+            table.store(board.getHash(), depth, remainingDepth, totalScore,
+                bound, bestPit);
+        }
+        return totalScore;
+    }
+
+    /**
+     * Checks if the deadline has passed or the search has been stopped.
+     *
+     * @return {@code true} if the search must give up.
+     */
+    private boolean mustStop() {
+        return (deadline != 0 && System.nanoTime() - deadline >= 0)
+            || (stopFlag != null && stopFlag.get());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The counters are those of the last call of any of the search methods,
+     * e.g., of the deepest level if {@link IterativeDeepening} deepens it.
+     */
+    @Override
+    public SearchStats getStats() {
+        SearchStats stats = new SearchStats(nodeCount,
+            ordering.getExpandedNodes(), leafCount, ordering.getCutoffs(),
+            ordering.getFirstMoveCutoffs(), tableProbes, tableHits, maxDepth);
+        stats.setElapsedNanos(elapsedNanos);
+        return stats;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTablebase(EndgameTablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Gets the endgame tablebase of this search.
+     *
+     * @return The tablebase, {@code null} if none is used.
+     */
+    EndgameTablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * Checks if the last search has been cut short by its depth limit. If not,
+     * the whole game tree has been searched and a deeper search would not
+     * change the result.
+     *
+     * @return {@code true} if a board on the depth limit has been reached.
+     */
+    boolean isHorizonReached() {
+        return horizonReached;
+    }
+
+    /**
+     * Gets the move ordering of this search, which also holds the cut-off
+     * statistics of the last search.
+     *
+     * @return The move ordering.
+     */
+    public MoveOrdering getOrdering() {
+        return ordering;
+    }
+
+    /**
+     * Gets the transposition table of this search.
+     *
+     * @return The transposition table, {@code null} if none is used.
+     */
+    public ScoreTable getTable() {
+        return table;
+    }
+
+    /**
+     * Thrown to abort a search whose deadline has passed or which has been
+     * stopped. There is only one
+     * instance without a stack trace, so throwing it is cheap.
+     */
+    private static final class DeadlineException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+        private static final DeadlineException INSTANCE =
+            new DeadlineException();
+
+        private DeadlineException() {
+            super(null, null, false, false);
+        }
+
+    }
+
+}
@@ -0,0 +1,277 @@
+package kalah.minimax;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntUnaryOperator;
+import kalah.model.BoardImpl;
+import kalah.model.Player;
+
+/**
+ * Exact results of all positions with few seeds left in the pits, read from
+ * a file written by {@link kalah.tools.TablebaseGenerator}. Moves only depend
+ * on the seeds in the pits, not on the seeds in the stores. So a table entry
+ * holds, for every distribution of at most {@link #getMaxSeeds()} seeds over
+ * the pits and each player on turn, the number of these seeds the machine
+ * gains beyond the human with perfect play of both players. Adding the
+ * difference of the stores yields the final difference and thus the winner.
+ *
+ * The file is mapped into memory read-only rather than read onto the heap,
+ * so all searches and even several virtual machines share the same pages.
+ * It starts with a header of four ints: {@link #MAGIC}, the number of pits
+ * per player, the maximum number of seeds and {@code 0}. One signed byte per
+ * entry follows, at the index given by the {@link Layout}.
+ */
+public final class EndgameTablebase {
+
+    /**
+     * The first int of a tablebase file, "KTB1" in ASCII.
+     */
+    public static final int MAGIC = 0x4b544231;
+
+    /**
+     * The size of the header in bytes.
+     */
+    public static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    /**
+     * Returned by {@link #probe(BoardImpl)} for boards which are not
+     * covered.
+     */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private final Layout layout;
+    private final ByteBuffer entries;
+
+    /**
+     * Instantiates a new {@link EndgameTablebase} object.
+     *
+     * @param layout The layout of the entries.
+     * @param entries The entries, starting at position {@code 0}.
+     */
+    private EndgameTablebase(Layout layout, ByteBuffer entries) {
+        this.layout = layout;
+        this.entries = entries;
+    }
+
+    /**
+     * Maps a tablebase file into memory.
+     *
+     * @param file The path of the file.
+     * @return The tablebase.
+     * @throws IOException If the file cannot be read or is no tablebase of
+     *         the expected size.
+     */
+    public static EndgameTablebase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(
+                FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_BYTES
+                || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not an endgame tablebase: " + file);
+            }
+
+            Layout layout;
+            try {
+                layout = new Layout(buffer.getInt(4), buffer.getInt(8));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            if (buffer.capacity() != HEADER_BYTES + layout.size()) {
+                throw new IOException("Truncated endgame tablebase: " + file);
+            }
+
+            // The mapping stays valid after the channel has been closed.
+            buffer.position(HEADER_BYTES);
+            return new EndgameTablebase(layout, buffer.slice());
+        }
+    }
+
+    /**
+     * Gets the number of pits per player of the covered boards.
+     *
+     * @return The number of pits per player.
+     */
+    public int getPitsPerPlayer() {
+        return layout.getPitsPerPlayer();
+    }
+
+    /**
+     * Gets the maximum number of seeds in the pits of the covered boards.
+     *
+     * @return The maximum number of seeds, stores excluded.
+     */
+    public int getMaxSeeds() {
+        return layout.getMaxSeeds();
+    }
+
+    /**
+     * Looks up the number of seeds in the pits the machine gains beyond the
+     * human from a board on with perfect play.
+     *
+     * @param board The board to look up.
+     * @return The gain of the machine, {@link #UNKNOWN} if the board is not
+     *         covered because of its size or its number of seeds.
+     */
+    public int probe(BoardImpl board) {
+        int pitsPerPlayer = board.getPitsPerPlayer();
+        if (pitsPerPlayer != layout.getPitsPerPlayer()) {
+            return UNKNOWN;
+        }
+
+        // The total number of seeds never changes, so the seeds in the pits
+        // follow from the stores without looking at the pits.
+        int pitSeeds = 2 * pitsPerPlayer * board.getSeedsPerPit()
+            - board.getSeeds(pitsPerPlayer + 1)
+            - board.getSeeds(2 * pitsPerPlayer + 2);
+        if (pitSeeds > layout.getMaxSeeds()) {
+            return UNKNOWN;
+        }
+
+        return entries.get(
+            (int) layout.index(board::getSeeds, board.getOpeningPlayer()));
+    }
+
+    /**
+     * Determines the winner of a board with perfect play.
+     *
+     * @param board The board to look up.
+     * @return The winner, {@link Player#NONE} for a tie and {@code null} if
+     *         the board is not covered.
+     */
+    public Player getWinner(BoardImpl board) {
+        int gain = probe(board);
+        if (gain == UNKNOWN) {
+            return null;
+        }
+
+        int pitsPerPlayer = board.getPitsPerPlayer();
+        int difference = gain + board.getSeeds(2 * pitsPerPlayer + 2)
+            - board.getSeeds(pitsPerPlayer + 1);
+        if (difference > 0) {
+            return Player.MACHINE;
+        } else if (difference < 0) {
+            return Player.HUMAN;
+        } else {
+            return Player.NONE;
+        }
+    }
+
+    /**
+     * The order of the entries of a tablebase. The distributions of the seeds
+     * over the pits are ranked by their total number of seeds first and by
+     * the combinatorial number system within the same total, so that every
+     * distribution of up to the maximum number of seeds has a unique index
+     * without gaps. The player on turn is the lowest bit of the index.
+     */
+    public static final class Layout {
+
+        private final int pitsPerPlayer;
+        private final int maxSeeds;
+        private final int pitCount;
+
+        /**
+         * The binomial coefficients {@code n over k} for {@code n} up to the
+         * maximum number of seeds plus the number of pits.
+         */
+        private final long[][] binomials;
+
+        /**
+         * Instantiates a new {@link Layout} object.
+         *
+         * @param pitsPerPlayer The number of pits per player.
+         * @param maxSeeds The maximum number of seeds in the pits, at most
+         *        127, so that every result fits into a byte.
+         * @throws IllegalArgumentException If the parameters are out of range
+         *         or the tablebase would exceed 2 GB.
+         */
+        public Layout(int pitsPerPlayer, int maxSeeds) {
+            if (pitsPerPlayer < 1 || maxSeeds < 0
+                || maxSeeds > Byte.MAX_VALUE) {
+                throw new IllegalArgumentException(
+                    "Error! Invalid tablebase size.");
+            }
+            this.pitsPerPlayer = pitsPerPlayer;
+            this.maxSeeds = maxSeeds;
+            this.pitCount = 2 * pitsPerPlayer;
+
+            binomials = new long[maxSeeds + pitCount + 1][pitCount + 1];
+            for (int n = 0; n < binomials.length; n++) {
+                binomials[n][0] = 1;
+                for (int k = 1; k <= Math.min(n, pitCount); k++) {
+                    binomials[n][k] = Math.min(Integer.MAX_VALUE,
+                        binomials[n - 1][k - 1] + binomials[n - 1][k]);
+                }
+            }
+            if (size() > Integer.MAX_VALUE - HEADER_BYTES) {
+                throw new IllegalArgumentException(
+                    "Error! The tablebase would be too large.");
+            }
+        }
+
+        /**
+         * Gets the number of pits per player.
+         *
+         * @return The number of pits per player.
+         */
+        public int getPitsPerPlayer() {
+            return pitsPerPlayer;
+        }
+
+        /**
+         * Gets the maximum number of seeds in the pits.
+         *
+         * @return The maximum number of seeds, stores excluded.
+         */
+        public int getMaxSeeds() {
+            return maxSeeds;
+        }
+
+        /**
+         * Gets the number of entries.
+         *
+         * @return Twice the number of distributions of up to the maximum
+         *         number of seeds.
+         */
+        public long size() {
+            return 2 * binomials[maxSeeds + pitCount][pitCount];
+        }
+
+        /**
+         * Calculates the index of the entry of a board. The pits are ranked
+         * from the last to the first one, so that the remaining number of
+         * seeds is known at every step without summing them up first.
+         *
+         * @param seeds The number of seeds by pit number. The pits must hold
+         *        at most the maximum number of seeds altogether.
+         * @param openingPlayer The player on turn.
+         * @return The index of the entry.
+         */
+        public long index(IntUnaryOperator seeds, Player openingPlayer) {
+            long rank = 0;
+            int suffixSeeds = 0;
+            for (int i = pitCount - 1; i >= 0; i--) {
+                int pit = i < pitsPerPlayer ? i + 1 : i + 2;
+                int previousSeeds = suffixSeeds;
+                suffixSeeds += seeds.applyAsInt(pit);
+
+                // The distributions with the same seeds in front of this pit
+                // but fewer in this one come first.
+                int remainingPits = pitCount - 1 - i;
+                rank += binomials[suffixSeeds + remainingPits][remainingPits]
+                    - binomials[previousSeeds + remainingPits][remainingPits];
+            }
+            if (suffixSeeds > 0) {
+                rank += binomials[suffixSeeds - 1 + pitCount][pitCount];
+            }
+
+            return 2 * rank + (openingPlayer == Player.MACHINE ? 1 : 0);
+        }
+
+    }
+
+}
@@ -0,0 +1,120 @@
+package kalah.minimax;
+
+import kalah.model.BoardImpl;
+
+/**
+ * A search which is bounded by time instead of depth. It runs an
+ * {@link AlphaBeta} search with level 1, then with level 2 and so on, until
+ * the time budget is used up, and returns the best move of the deepest
+ * completed level. Each level searches the best move of the previous one
+ * first and reuses its killer moves, history and transposition table.
+ *
+ * The first level always completes, so there is a move even if the budget is
+ * too small for anything else. The search stops early if a level has searched
+ * the whole game tree, since deeper levels would not change the result.
+ */
+public class IterativeDeepening implements Search {
+
+    /**
+     * The deepest level searched.
+     */
+    public static final int MAX_LEVEL = 64;
+
+    private final long timeBudget;
+    private final AlphaBeta search;
+    private long nodeCount;
+    private SearchStats stats = new SearchStats();
+    private int completedLevel;
+
+    /**
+     * Instantiates a new {@link IterativeDeepening} object.
+     *
+     * @param timeBudget The time per move in milliseconds.
+     * @param table The transposition table to use, {@code null} for none.
+     */
+    public IterativeDeepening(long timeBudget, ScoreTable table) {
+        this.timeBudget = timeBudget;
+        this.search = new AlphaBeta(MAX_LEVEL, true, table);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The move is the one {@link AlphaBeta} would choose on the deepest level
+     * completed within the time budget.
+     */
+    @Override
+    public int bestMove(BoardImpl board) {
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + timeBudget * 1_000_000;
+        if (deadline == 0) {
+            deadline = 1; // 0 means no deadline for the alpha-beta search.
+        }
+        nodeCount = 0;
+        stats = new SearchStats();
+        completedLevel = 0;
+        if (search.getTable() != null) {
+            search.getTable().newSearch();
+        }
+
+        int bestPit = 0;
+        for (int level = 1; level <= MAX_LEVEL; level++) {
+            int pit = search.bestMove(board, level, bestPit,
+                level == 1 ? 0 : deadline);
+            nodeCount += search.getNodeCount();
+            stats.add(search.getStats());
+            if (pit == 0) {
+                break;
+            }
+
+            bestPit = pit;
+            completedLevel = level;
+            if (!search.isHorizonReached()
+                || System.nanoTime() - deadline >= 0) {
+                break;
+            }
+        }
+
+        stats.setElapsedNanos(System.nanoTime() - startNanos);
+        return bestPit;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTablebase(EndgameTablebase tablebase) {
+        search.setTablebase(tablebase);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * This includes all levels, also the aborted one.
+     */
+    @Override
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Like the node count, this includes all levels.
+     */
+    @Override
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Gets the deepest level completed by the last search, whose best move has
+     * been returned.
+     *
+     * @return The completed level.
+     */
+    public int getCompletedLevel() {
+        return completedLevel;
+    }
+
+}
@@ -0,0 +1,190 @@
+package kalah.minimax;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import kalah.exceptions.IllegalMoveException;
+import kalah.model.BoardImpl;
+
+/**
+ * Lazy SMP search: the main thread deepens an {@link AlphaBeta} search level by
+ * level up to the level of this search, while helper threads run the same
+ * deepening on their own copies of the board. All of them share one
+ * thread-safe {@link ScoreTable}, so the helpers fill the table with scores the
+ * main thread reuses. To avoid that all threads search the same boards at the
+ * same time, every other helper starts one level ahead, and each helper
+ * perturbs its {@link MoveOrdering} differently.
+ *
+ * The move is always the one of the main thread, which is the move of
+ * {@link AlphaBeta} on the full level, since the table only holds valid scores
+ * and bounds. With a single thread there are no helpers, so the search is
+ * completely deterministic. The helpers are stopped once the main thread has
+ * finished.
+ */
+public class LazySmp implements Search {
+
+    /**
+     * The pools by their parallelism, which are shared by all searches.
+     */
+    private static final Map<Integer, ForkJoinPool> POOLS =
+        new ConcurrentHashMap<>();
+
+    private final int level;
+    private final int threads;
+    private final ScoreTable table;
+    private EndgameTablebase tablebase;
+    private long nodeCount;
+    private SearchStats stats = new SearchStats();
+
+    /**
+     * Instantiates a new {@link LazySmp} object.
+     *
+     * @param level The maximum depth of the evaluation tree.
+     * @param threads The number of threads including the main thread.
+     * @param table The transposition table shared by the threads. If it is
+     *        {@code null} or not thread-safe, a new
+     *        {@link SharedTranspositionTable} of the default size is used.
+     */
+    public LazySmp(int level, int threads, ScoreTable table) {
+        this.level = level;
+        this.threads = Math.max(threads, 1);
+        this.table = table != null && table.isThreadSafe() ? table
+            : new SharedTranspositionTable(ScoreTable.DEFAULT_SIZE_MB);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Like {@link AlphaBeta#bestMove(BoardImpl)}, the move with the lowest pit
+     * number wins on equal scores.
+     */
+    @Override
+    public int bestMove(BoardImpl board) {
+        if (board.isGameOver()) {
+            throw new IllegalMoveException("Error! The game is already over!");
+        }
+        long startNanos = System.nanoTime();
+        table.newSearch();
+
+        AtomicBoolean stopFlag = new AtomicBoolean();
+        Helper[] helpers = new Helper[threads - 1];
+        if (helpers.length > 0) {
+            ForkJoinPool pool =
+                POOLS.computeIfAbsent(helpers.length, ForkJoinPool::new);
+            for (int i = 0; i < helpers.length; i++) {
+                helpers[i] = new Helper(board.clone(), i + 1, stopFlag);
+                pool.execute(helpers[i]);
+            }
+        }
+
+        AlphaBeta main = new AlphaBeta(level, true, table);
+        main.setTablebase(tablebase);
+        nodeCount = 0;
+        stats = new SearchStats();
+        int bestPit = 0;
+        for (int depth = 1; depth <= level; depth++) {
+            bestPit = main.bestMove(board, depth, bestPit, 0);
+            nodeCount += main.getNodeCount();
+            stats.add(main.getStats());
+        }
+
+        stopFlag.set(true);
+        for (Helper helper : helpers) {
+            helper.join();
+            nodeCount += helper.nodeCount;
+            stats.add(helper.stats);
+        }
+
+        stats.setElapsedNanos(System.nanoTime() - startNanos);
+        return bestPit;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * This includes the boards visited by the helper threads.
+     */
+    @Override
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * This includes the counters of the helper threads.
+     */
+    @Override
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTablebase(EndgameTablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Gets the number of threads of this search.
+     *
+     * @return The number of threads including the main thread.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Deepens a search on a copy of the board in a helper thread until the
+     * main thread is done.
+     */
+    private final class Helper extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient BoardImpl board;
+        private final int id;
+        private final transient AtomicBoolean stopFlag;
+        private long nodeCount;
+        private final transient SearchStats stats = new SearchStats();
+
+        /**
+         * Instantiates a new {@link Helper} object.
+         *
+         * @param board A copy of the root board owned by this helper.
+         * @param id The number of this helper, starting at 1.
+         * @param stopFlag The flag which is set once the main thread is done.
+         */
+        private Helper(BoardImpl board, int id, AtomicBoolean stopFlag) {
+            this.board = board;
+            this.id = id;
+            this.stopFlag = stopFlag;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void compute() {
+            AlphaBeta search = new AlphaBeta(level,
+                new MoveOrdering(level, true, id), table, stopFlag);
+            search.setTablebase(tablebase);
+            int bestPit = 0;
+            for (int depth = 1 + id % 2; depth <= level && !stopFlag.get();
+                depth++) {
+                bestPit = search.bestMove(board, depth, bestPit, 0);
+                nodeCount += search.getNodeCount();
+                stats.add(search.getStats());
+                if (bestPit == 0) {
+                    break;
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+package kalah.minimax;
+
+import kalah.exceptions.IllegalMoveException;
+import kalah.model.BoardImpl;
+import kalah.model.Player;
+import kalah.model.UndoRecord;
+
+/**
+ * Evaluates the game tree of a board depth-first without materialising it.
+ * The total score of a board is calculated exactly as the score of a
+ * {@link Node} after {@link Node#updateScore()}: its local score plus the
+ * maximum child score if the machine is on turn, or the minimum child score if
+ * the human is on turn. Only the current path of the tree is held in memory,
+ * as a single board which is changed in place and one {@link UndoRecord} per
+ * depth, so the memory needed grows linearly with the level.
+ */
+public class Minimax implements Search {
+
+    private final int level;
+    private final UndoRecord[] records;
+    private long nodeCount;
+    private long leafCount;
+    private long elapsedNanos;
+
+    /**
+     * Instantiates a new {@link Minimax} object.
+     *
+     * @param level The maximum depth of the evaluation tree.
+     */
+    public Minimax(int level) {
+        this.level = level;
+        this.records = new UndoRecord[level];
+        for (int i = 0; i < level; i++) {
+            records[i] = new UndoRecord();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The best move is the one leading to the child with the maximum total
+     * score. Like {@link Node#getMaxChild()}, the first move wins on equal
+     * scores.
+     */
+    @Override
+    public int bestMove(BoardImpl board) {
+        if (board.isGameOver()) {
+            throw new IllegalMoveException("Error! The game is already over!");
+        }
+        long startNanos = System.nanoTime();
+        nodeCount = 0;
+        leafCount = 0;
+
+        int bestPit = 0;
+        double bestScore = 0;
+        int storeNum = getStoreNum(board, board.getOpeningPlayer());
+        for (int pit = storeNum - board.getPitsPerPlayer(); pit < storeNum;
+            pit++) {
+            if (board.getSeeds(pit) != 0) {
+                board.applyMove(pit, records[0]);
+                double score = score(board, 1);
+                board.undoMove(records[0]);
+
+                // Only a strictly better score replaces the first best move.
+                if (bestPit == 0 || score > bestScore) {
+                    bestPit = pit;
+                    bestScore = score;
+                }
+            }
+        }
+
+        elapsedNanos = System.nanoTime() - startNanos;
+        return bestPit;
+    }
+
+    /**
+     * Recursively calculates the total score of a board in the evaluation
+     * tree. All children are explored in place on the given board.
+     *
+     * @param board The board to evaluate.
+     * @param depth The current depth of the board in the evaluation tree.
+     * @return The total score of the board.
+     */
+    public double score(BoardImpl board, int depth) {
+        nodeCount++;
+        double localScore = board.calcScore(depth);
+        Player player = board.getOpeningPlayer();
+        if (depth == level || board.isGameOver() || player == Player.NONE) {
+            leafCount++;
+            return localScore;
+        }
+
+        UndoRecord record = records[depth];
+        boolean hasChild = false;
+        double bestScore = 0;
+        int storeNum = getStoreNum(board, player);
+        for (int pit = storeNum - board.getPitsPerPlayer(); pit < storeNum;
+            pit++) {
+            if (board.getSeeds(pit) != 0) {
+                board.applyMove(pit, record);
+                double score = score(board, depth + 1);
+                board.undoMove(record);
+
+                if (!hasChild
+                    || (player == Player.MACHINE && score > bestScore)
+                    || (player == Player.HUMAN && score < bestScore)) {
+                    bestScore = score;
+                    hasChild = true;
+                }
+            }
+        }
+
+        if (!hasChild) {
+            leafCount++;
+            return localScore;
+        }
+        return bestScore + localScore;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Minimax cuts nothing off and uses no transposition table, so every
+     * board is either expanded or a leaf and the search reaches its level
+     * unless the game ends earlier everywhere.
+     */
+    @Override
+    public SearchStats getStats() {
+        SearchStats stats = new SearchStats(nodeCount, nodeCount - leafCount,
+            leafCount, 0, 0, 0, 0, nodeCount == 0 ? 0 : level);
+        stats.setElapsedNanos(elapsedNanos);
+        return stats;
+    }
+
+    /**
+     * Gets the pit number of a players store. The pits of the player are the
+     * ones right before it.
+     *
+     * @param board The board whose geometry to use.
+     * @param player The player whose store number should be returned.
+     * @return The pit number of the store.
+     */
+    static int getStoreNum(BoardImpl board, Player player) {
+        if (player == Player.MACHINE) {
+            return (board.getPitsPerPlayer() + 1) * 2;
+        } else {
+            return board.getPitsPerPlayer() + 1;
+        }
+    }
+
+}
@@ -0,0 +1,239 @@
+package kalah.minimax;
+
+import kalah.model.BoardImpl;
+
+/**
+ * Orders the moves of a board for {@link AlphaBeta}, so that the moves most
+ * likely to cause a cut-off are searched first. The best move stored for the
+ * board in the {@link TranspositionTable} comes first. It is followed by the
+ * moves granting an extra turn, i.e., whose last seed lands in the own store,
+ * then by captures, then by the killer moves, which caused a cut-off on the
+ * same depth before, and finally by all other moves in the order of their
+ * history score, which sums up the cut-offs they caused anywhere in the tree.
+ * Equal moves keep their ascending pit order.
+ *
+ * The order only changes the number of visited boards, never a score, since
+ * the total score of a board does not depend on the order of its children.
+ * This allows a perturbation of the history scores, which makes searches in
+ * different threads explore the tree in different orders.
+ */
+public class MoveOrdering {
+
+    private static final int HASH_MOVE = 4;
+    private static final int EXTRA_TURN = 3;
+    private static final int CAPTURE = 2;
+    private static final int KILLER = 1;
+
+    private final boolean enabled;
+    private final int perturbation;
+    private final int[][] moves;
+    private final long[][] sortKeys;
+    private final int[][] killers;
+    private long[] history;
+
+    private long expandedNodes;
+    private long cutoffs;
+    private long firstMoveCutoffs;
+
+    /**
+     * Instantiates a new {@link MoveOrdering} object.
+     *
+     * @param level The maximum depth of the evaluation tree.
+     * @param enabled {@code false} to keep the ascending pit order, which is
+     *        the order of {@link Minimax}.
+     */
+    public MoveOrdering(int level, boolean enabled) {
+        this(level, enabled, 0);
+    }
+
+    /**
+     * Instantiates a new {@link MoveOrdering} object which perturbs the
+     * history scores.
+     *
+     * @param level The maximum depth of the evaluation tree.
+     * @param enabled {@code false} to keep the ascending pit order, which is
+     *        the order of {@link Minimax}.
+     * @param perturbation A seed for a small pseudo-random bonus added to the
+     *        history score of each pit, {@code 0} for none.
+     */
+    public MoveOrdering(int level, boolean enabled, int perturbation) {
+        this.enabled = enabled;
+        this.perturbation = perturbation;
+        this.moves = new int[level][0];
+        this.sortKeys = new long[level][0];
+        this.killers = new int[level][2];
+        this.history = new long[0];
+    }
+
+    /**
+     * Prepares the tables for a search on a board of the given size and resets
+     * the statistics. The history and killer moves of previous searches on
+     * boards of the same size are kept.
+     *
+     * @param board The board which is going to be searched.
+     */
+    void prepare(BoardImpl board) {
+        int pitsPerPlayer = board.getPitsPerPlayer();
+        int pitCount = (pitsPerPlayer + 1) * 2;
+        if (history.length != pitCount + 1) {
+            history = new long[pitCount + 1];
+            for (int depth = 0; depth < moves.length; depth++) {
+                moves[depth] = new int[pitsPerPlayer];
+                sortKeys[depth] = new long[pitsPerPlayer];
+                killers[depth][0] = 0;
+                killers[depth][1] = 0;
+            }
+        }
+
+        expandedNodes = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+    }
+
+    /**
+     * Generates the moves of the player on turn in the order they should be
+     * searched.
+     *
+     * @param board The board to generate the moves for.
+     * @param depth The depth of the board in the evaluation tree.
+     * @param hashMove The best move stored for the board in the transposition
+     *        table, {@code 0} if there is none.
+     * @return A buffer owned by this ordering for the given depth, holding the
+     *         pit numbers of all moves. Unused entries at the end are
+     *         {@code 0}.
+     */
+    int[] orderMoves(BoardImpl board, int depth, int hashMove) {
+        int[] buffer = moves[depth];
+        long[] bufferKeys = sortKeys[depth];
+        int pitsPerPlayer = board.getPitsPerPlayer();
+        int storeNum = Minimax.getStoreNum(board, board.getOpeningPlayer());
+        int count = 0;
+
+        for (int pit = storeNum - pitsPerPlayer; pit < storeNum; pit++) {
+            if (board.getSeeds(pit) == 0) {
+                continue;
+            }
+
+            if (!enabled) {
+                buffer[count++] = pit;
+                continue;
+            }
+
+            // Insertion sort by descending key, which leaves equal keys in
+            // ascending pit order.
+            long key = key(board, depth, pit, storeNum);
+            if (pit == hashMove) {
+                key = (long) HASH_MOVE << 56;
+            }
+            int i = count++;
+            while (i > 0 && bufferKeys[i - 1] < key) {
+                buffer[i] = buffer[i - 1];
+                bufferKeys[i] = bufferKeys[i - 1];
+                i--;
+            }
+            buffer[i] = pit;
+            bufferKeys[i] = key;
+        }
+
+        for (int i = count; i < buffer.length; i++) {
+            buffer[i] = 0;
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Calculates the sort key of a move, the category of the move in the upper
+     * bits and its history score in the lower bits.
+     *
+     * @param board The board the move is executed on.
+     * @param depth The depth of the board in the evaluation tree.
+     * @param pit The source pit of the move.
+     * @param storeNum The store of the player on turn.
+     * @return The sort key. Moves with a higher key are searched first.
+     */
+    private long key(BoardImpl board, int depth, int pit, int storeNum) {
+        int rank = 0;
+        int landingPit = board.getLandingPit(pit);
+        int cycleLength = board.getPitsPerPlayer() * 2 + 1;
+
+        if (landingPit == storeNum) {
+            rank = EXTRA_TURN;
+        } else if (landingPit < storeNum
+            && landingPit >= storeNum - board.getPitsPerPlayer()
+            && board.getSeeds(pit) < cycleLength
+            && board.getSeeds(landingPit) == 0
+            && board.getSeeds(board.getOpposingPitNum(landingPit)) > 0) {
+            rank = CAPTURE;
+        } else if (killers[depth][0] == pit || killers[depth][1] == pit) {
+            rank = KILLER;
+        }
+
+        long score = history[pit];
+        if (perturbation != 0) {
+            score += (pit ^ perturbation) * 0x9e3779b9 >>> 28;
+        }
+        return ((long) rank << 56) | Math.min(score, (1L << 56) - 1);
+    }
+
+    /**
+     * Records that a board has been expanded, i.e., its children have been
+     * searched.
+     */
+    void recordExpansion() {
+        expandedNodes++;
+    }
+
+    /**
+     * Records that a move caused a cut-off, which makes it a killer move on
+     * its depth and raises its history score.
+     *
+     * @param depth The depth of the board in the evaluation tree.
+     * @param pit The source pit of the move.
+     * @param remainingDepth The depth of the subtree below the board.
+     * @param index The position of the move in the searched order.
+     */
+    void recordCutoff(int depth, int pit, int remainingDepth, int index) {
+        cutoffs++;
+        if (index == 0) {
+            firstMoveCutoffs++;
+        }
+
+        if (killers[depth][0] != pit) {
+            killers[depth][1] = killers[depth][0];
+            killers[depth][0] = pit;
+        }
+        history[pit] += (long) remainingDepth * remainingDepth;
+    }
+
+    /**
+     * Gets the number of boards whose children have been searched since the
+     * start of the last search.
+     *
+     * @return The number of expanded boards.
+     */
+    public long getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * Gets the number of cut-offs since the start of the last search.
+     *
+     * @return The number of cut-offs.
+     */
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * Gets the number of cut-offs caused by the first searched move since the
+     * start of the last search. The higher its share of all cut-offs, the
+     * better the ordering.
+     *
+     * @return The number of cut-offs by the first move.
+     */
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+}
@@ -9,7 +9,8 @@ import kalah.model.Player;
  * Represents a node in a tree with up to n children. The {@link Node} itself
  * holds a {@link #board}, it's calculated {@link #localScore} and a
  * main {@link #score} which is the sum of it's maximum or minimum child
- * and the {@link #localScore}.
+ * and the {@link #localScore}. {@link Minimax} calculates the same total score
+ * depth-first without materialising the tree of nodes.
  */
 public class Node {
 
@@ -0,0 +1,142 @@
+package kalah.minimax;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import kalah.model.BoardImpl;
+import kalah.model.Player;
+
+/**
+ * Best moves of the machine for the positions of the first plies of a game,
+ * found offline by deep searches of {@link kalah.tools.BookBuilder}. The
+ * moves are keyed by the hash of the board, see {@link BoardImpl#getHash()},
+ * which covers the seeds and the player on turn and differs between board
+ * sizes. A book therefore holds the openings of several board sizes at once.
+ *
+ * The file starts with {@link #MAGIC} and the number of entries, followed by
+ * the hashes in ascending order as longs and the pit numbers of the moves as
+ * one unsigned byte each. A lookup is a binary search over the hashes.
+ */
+public final class OpeningBook {
+
+    /**
+     * The first int of a book file, "KOB1" in ASCII.
+     */
+    public static final int MAGIC = 0x4b4f4231;
+
+    private final long[] hashes;
+    private final byte[] moves;
+
+    /**
+     * Instantiates a new {@link OpeningBook} object.
+     *
+     * @param hashes The hashes of the boards in ascending order.
+     * @param moves The pit numbers of the moves, in the same order.
+     */
+    private OpeningBook(long[] hashes, byte[] moves) {
+        this.hashes = hashes;
+        this.moves = moves;
+    }
+
+    /**
+     * Reads a book file.
+     *
+     * @param file The path of the file.
+     * @return The book.
+     * @throws IOException If the file cannot be read or is no book.
+     */
+    public static OpeningBook read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an opening book: " + file);
+            }
+            int size = in.readInt();
+            if (size < 0) {
+                throw new IOException("Corrupt opening book: " + file);
+            }
+
+            long[] hashes = new long[size];
+            for (int i = 0; i < size; i++) {
+                hashes[i] = in.readLong();
+            }
+            byte[] moves = new byte[size];
+            in.readFully(moves);
+
+            return new OpeningBook(hashes, moves);
+        }
+    }
+
+    /**
+     * Writes a book file with the given moves.
+     *
+     * @param file The path of the file.
+     * @param entries The pit numbers of the moves by hash of the board.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Path file, Map<Long, Integer> entries)
+        throws IOException {
+        long[] hashes = new long[entries.size()];
+        int i = 0;
+        for (long hash : entries.keySet()) {
+            hashes[i++] = hash;
+        }
+        Arrays.sort(hashes);
+
+        try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(hashes.length);
+            for (long hash : hashes) {
+                out.writeLong(hash);
+            }
+            for (long hash : hashes) {
+                out.writeByte(entries.get(hash));
+            }
+        }
+    }
+
+    /**
+     * Looks up the move of the player on turn.
+     *
+     * @param board The board to look up.
+     * @return The number of the pit to sow, {@code 0} if the book has no
+     *         legal move for the board.
+     */
+    public int lookup(BoardImpl board) {
+        int index = Arrays.binarySearch(hashes, board.getHash());
+        if (index < 0) {
+            return 0;
+        }
+
+        // A hash collision with a board of a different size must not lead
+        // to an illegal move.
+        int pit = moves[index] & 0xff;
+        int pitsPerPlayer = board.getPitsPerPlayer();
+        int firstPit = board.getOpeningPlayer() == Player.MACHINE
+            ? pitsPerPlayer + 2 : 1;
+        if (board.isGameOver() || board.getOpeningPlayer() == Player.NONE
+            || pit < firstPit || pit >= firstPit + pitsPerPlayer
+            || board.getSeeds(pit) == 0) {
+            return 0;
+        }
+
+        return pit;
+    }
+
+    /**
+     * Gets the number of positions in this book.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return hashes.length;
+    }
+
+}
@@ -0,0 +1,203 @@
+package kalah.minimax;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import kalah.exceptions.IllegalMoveException;
+import kalah.model.BoardImpl;
+
+/**
+ * Alpha-beta search which splits the root of the evaluation tree among the
+ * threads of a {@link ForkJoinPool}, following the young brothers wait
+ * concept: the first move in the order of a {@link MoveOrdering} is searched
+ * alone, since it is the most likely best move and its score makes the windows
+ * of all other moves narrow. The remaining moves are then searched in parallel,
+ * each by its own {@link AlphaBeta} on its own copy of the board.
+ *
+ * All other moves are searched with the window of the first move, like the
+ * root of {@link AlphaBeta} does for the second move. A move scoring at least
+ * as well as the first one gets an exact score, any other move is rejected by
+ * an upper bound. So the chosen move is exactly the one of the sequential
+ * search, including the lowest pit number winning on equal scores.
+ *
+ * A transposition table is used by all threads if it is thread-safe, and only
+ * by the first move otherwise.
+ */
+public class ParallelSearch implements Search {
+
+    /**
+     * The pools by their parallelism, which are shared by all searches.
+     */
+    private static final Map<Integer, ForkJoinPool> POOLS =
+        new ConcurrentHashMap<>();
+
+    private final int level;
+    private final int threads;
+    private final ScoreTable table;
+    private final AlphaBeta eldestSearch;
+    private long nodeCount;
+    private SearchStats stats = new SearchStats();
+
+    /**
+     * Instantiates a new {@link ParallelSearch} object.
+     *
+     * @param level The maximum depth of the evaluation tree.
+     * @param threads The number of threads searching in parallel.
+     * @param table The transposition table to use, {@code null} for none.
+     */
+    public ParallelSearch(int level, int threads, ScoreTable table) {
+        this.level = level;
+        this.threads = Math.max(threads, 1);
+        this.table = table;
+        this.eldestSearch = new AlphaBeta(level, true, table);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Like {@link AlphaBeta#bestMove(BoardImpl)}, the move with the lowest pit
+     * number wins on equal scores.
+     */
+    @Override
+    public int bestMove(BoardImpl board) {
+        if (board.isGameOver()) {
+            throw new IllegalMoveException("Error! The game is already over!");
+        }
+        long startNanos = System.nanoTime();
+
+        if (table != null) {
+            table.newSearch();
+        }
+
+        MoveOrdering ordering = eldestSearch.getOrdering();
+        ordering.prepare(board);
+        int[] moves = ordering.orderMoves(board, 0, 0).clone();
+
+        int bestPit = moves[0];
+        long bestScore = eldestSearch.scoreMove(board, bestPit,
+            -AlphaBeta.INFINITY, AlphaBeta.INFINITY);
+        nodeCount = eldestSearch.getNodeCount();
+        stats = eldestSearch.getStats();
+
+        ForkJoinPool pool = POOLS.computeIfAbsent(threads, ForkJoinPool::new);
+        ScoreTable sharedTable =
+            table != null && table.isThreadSafe() ? table : null;
+        MoveTask[] tasks = new MoveTask[moves.length];
+        for (int i = 1; i < moves.length && moves[i] != 0; i++) {
+            tasks[i] = new MoveTask(level, board.clone(), moves[i],
+                bestScore - 1, sharedTable, eldestSearch.getTablebase());
+            pool.execute(tasks[i]);
+        }
+
+        for (int i = 1; i < moves.length && moves[i] != 0; i++) {
+            long score = tasks[i].join();
+            nodeCount += tasks[i].nodeCount;
+            stats.add(tasks[i].stats);
+
+            // Scores of moves worse than the first one are just upper bounds
+            // below its score, so they never win.
+            int pit = moves[i];
+            if (score > bestScore || (score == bestScore && pit < bestPit)) {
+                bestPit = pit;
+                bestScore = score;
+            }
+        }
+
+        stats.setElapsedNanos(System.nanoTime() - startNanos);
+        return bestPit;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * This includes the boards visited by all threads.
+     */
+    @Override
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * This includes the counters of all threads.
+     */
+    @Override
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTablebase(EndgameTablebase tablebase) {
+        eldestSearch.setTablebase(tablebase);
+    }
+
+    /**
+     * Gets the number of threads of this search.
+     *
+     * @return The parallelism.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Searches a single move of the root on a copy of the board.
+     */
+    private static final class MoveTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int level;
+        private final transient BoardImpl board;
+        private final int pit;
+        private final long alpha;
+        private final transient ScoreTable table;
+        private final transient EndgameTablebase tablebase;
+        private long nodeCount;
+        private transient SearchStats stats;
+
+        /**
+         * Instantiates a new {@link MoveTask} object.
+         *
+         * @param level The maximum depth of the evaluation tree.
+         * @param board A copy of the root board owned by this task.
+         * @param pit The source pit of the move.
+         * @param alpha The score of the first move minus one, so that equal
+         *        scores are exact.
+         * @param table The thread-safe transposition table to use,
+         *        {@code null} for none.
+         * @param tablebase The endgame tablebase to use, {@code null} for
+         *        none.
+         */
+        private MoveTask(int level, BoardImpl board, int pit, long alpha,
+            ScoreTable table, EndgameTablebase tablebase) {
+            this.level = level;
+            this.board = board;
+            this.pit = pit;
+            this.alpha = alpha;
+            this.table = table;
+            this.tablebase = tablebase;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected Long compute() {
+            AlphaBeta search = new AlphaBeta(level, true, table);
+            search.setTablebase(tablebase);
+            long score = search.scoreMove(board, pit, alpha,
+                AlphaBeta.INFINITY);
+            nodeCount = search.getNodeCount();
+            stats = search.getStats();
+            return score;
+        }
+
+    }
+
+}
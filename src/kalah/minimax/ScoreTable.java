@@ -0,0 +1,197 @@
+package kalah.minimax;
+
+/**
+ * A fixed-size cache of total scores of boards, which lets {@link AlphaBeta}
+ * reuse the score of a board reached again by a different order of moves.
+ *
+ * The total score of a board, like in {@link Node}, is the sum of the local
+ * scores along the best path below it, here in the scaled integers of
+ * {@link kalah.model.BoardImpl#calcScaledScore(int)}. It depends on the board
+ * itself, the remaining depth of the subtree and, through the victory score,
+ * on the depth of the board in the tree. So an entry only matches a board with
+ * the same hash at the same depth and with the same remaining depth. Besides
+ * the score, an entry stores whether the score is exact or only a bound, and
+ * the best move found. The scores are stored as ints, which suffices for all
+ * but huge numbers of seeds. Scores beyond the range of an int are not stored.
+ */
+public interface ScoreTable {
+
+    /**
+     * The score of an entry is exact.
+     */
+    int EXACT = 0;
+
+    /**
+     * The score of an entry is a lower bound of the total score.
+     */
+    int LOWER = 1;
+
+    /**
+     * The score of an entry is an upper bound of the total score.
+     */
+    int UPPER = 2;
+
+    /**
+     * The size of a table in megabytes if none is given.
+     */
+    int DEFAULT_SIZE_MB = 8;
+
+    /**
+     * Looks up the entry of a board.
+     *
+     * @param hash The hash of the board.
+     * @param depth The depth of the board in the evaluation tree.
+     * @param remainingDepth The depth of the subtree below the board.
+     * @param entry Receives a copy of the entry if there is one.
+     * @return {@code true} if there is an entry.
+     */
+    boolean probe(long hash, int depth, int remainingDepth, Entry entry);
+
+    /**
+     * Stores the score of a board.
+     *
+     * @param hash The hash of the board.
+     * @param depth The depth of the board in the evaluation tree.
+     * @param remainingDepth The depth of the subtree below the board.
+     * @param score The total score of the board, or a bound of it.
+     * @param bound The type of the score.
+     * @param move The pit number of the best move found.
+     */
+    void store(long hash, int depth, int remainingDepth, long score,
+        int bound, int move);
+
+    /**
+     * Starts a new search. Entries of previous searches remain valid, but are
+     * replaced more readily.
+     */
+    void newSearch();
+
+    /**
+     * Removes all entries and resets the statistics.
+     */
+    void clear();
+
+    /**
+     * Checks if several threads may use this table at the same time.
+     *
+     * @return {@code true} if this table is thread-safe.
+     */
+    boolean isThreadSafe();
+
+    /**
+     * Gets the number of lookups since the table has been created or cleared.
+     *
+     * @return The number of lookups.
+     */
+    long getProbes();
+
+    /**
+     * Gets the number of successful lookups since the table has been created
+     * or cleared.
+     *
+     * @return The number of found entries.
+     */
+    long getHits();
+
+    /**
+     * Gets the share of successful lookups.
+     *
+     * @return The hit rate between 0 and 1.
+     */
+    default double getHitRate() {
+        long probes = getProbes();
+        return probes == 0 ? 0 : (double) getHits() / probes;
+    }
+
+    /**
+     * Gets the number of stored scores since the table has been created or
+     * cleared.
+     *
+     * @return The number of stored scores.
+     */
+    long getStores();
+
+    /**
+     * Gets the number of entries of this table.
+     *
+     * @return The capacity of this table.
+     */
+    int getCapacity();
+
+    /**
+     * Gets the memory occupied by the entries of this table.
+     *
+     * @return The size of the entries in bytes.
+     */
+    long getMemoryFootprint();
+
+    /**
+     * Combines the hash of a board with its depths, so that the same board on
+     * different depths is stored in different buckets.
+     *
+     * @param hash The hash of the board.
+     * @param depth The depth of the board in the evaluation tree.
+     * @param remainingDepth The depth of the subtree below the board.
+     * @return The key of the entry, never {@code 0}.
+     */
+    static long key(long hash, int depth, int remainingDepth) {
+        long key = hash ^ (depth * 0x9e3779b97f4a7c15L)
+            ^ (remainingDepth * 0xc2b2ae3d27d4eb4fL);
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * A copy of an entry, which stays valid even if the entry is replaced.
+     * Meant to be allocated once per search and reused for every lookup.
+     */
+    final class Entry {
+
+        private long score;
+        private int bound;
+        private int move;
+
+        /**
+         * Sets the content of this copy.
+         *
+         * @param score The total score, or a bound of it.
+         * @param bound The type of the score.
+         * @param move The pit number of the best move found.
+         */
+        void set(long score, int bound, int move) {
+            this.score = score;
+            this.bound = bound;
+            this.move = move;
+        }
+
+        /**
+         * Gets the score of the entry.
+         *
+         * @return The total score, or a bound of it.
+         */
+        public long getScore() {
+            return score;
+        }
+
+        /**
+         * Gets the type of the score of the entry.
+         *
+         * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+         */
+        public int getBound() {
+            return bound;
+        }
+
+        /**
+         * Gets the best move of the entry.
+         *
+         * @return The pit number of the best move found. It is only a hint for
+         *         the move ordering, since boards with more than 255 pits do
+         *         not fit.
+         */
+        public int getMove() {
+            return move;
+        }
+
+    }
+
+}
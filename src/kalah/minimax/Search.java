@@ -0,0 +1,49 @@
+package kalah.minimax;
+
+import kalah.model.BoardImpl;
+
+/**
+ * A search for the best move of the machine on a given board. The board is
+ * changed in place during the search, but restored before the search returns.
+ * Implementations are not thread-safe and meant to be used for one search at a
+ * time.
+ */
+public interface Search {
+
+    /**
+     * Finds the best move for the player on turn.
+     *
+     * @param board The board to find the best move on.
+     * @return The number of the pit to sow.
+     * @throws kalah.exceptions.IllegalMoveException If the game is already
+     *         over.
+     */
+    int bestMove(BoardImpl board);
+
+    /**
+     * Gets the number of boards visited by the last call of
+     * {@link #bestMove(BoardImpl)}, which includes the leaves of the
+     * evaluation tree but not its root.
+     *
+     * @return The number of visited boards.
+     */
+    long getNodeCount();
+
+    /**
+     * Gets the statistics of the last call of {@link #bestMove(BoardImpl)}.
+     *
+     * @return A new object holding the statistics.
+     */
+    SearchStats getStats();
+
+    /**
+     * Lets the search look up the results of positions with few seeds left in
+     * an endgame tablebase instead of evaluating them heuristically. Searches
+     * without support for tablebases ignore it.
+     *
+     * @param tablebase The tablebase, {@code null} for none.
+     */
+    default void setTablebase(EndgameTablebase tablebase) {
+    }
+
+}
@@ -0,0 +1,477 @@
+package kalah.minimax;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import kalah.model.BoardImpl;
+import kalah.model.EvalParams;
+import kalah.model.Player;
+
+/**
+ * The moves of the machine's searches, shared by all games of a process.
+ * Games at the same level often reach the same boards, especially in the
+ * first plies, and every search of a board with the same settings picks the
+ * same move, so a move found once is reused instead of searched again.
+ *
+ * The key is the complete board, i.e., the seeds of all pits and the player
+ * on turn, together with everything else the move depends on: the level, the
+ * search mode, the {@link EvalParams} and the endgame tablebase. Searches
+ * bounded by time are never cached, since their depth varies.
+ *
+ * The cache is a striped LRU cache: the keys are spread by their hash over a
+ * fixed number of stripes, each of them an access-ordered map with its own
+ * lock, so that games in many threads rarely contend. Every stripe holds an
+ * equal share of the entries and evicts its own least recently used entry,
+ * so the cache as a whole only approximately evicts the least recently used
+ * one.
+ *
+ * A cache can be written to a text file and read back, e.g., to warm it up
+ * at startup. Every line holds the search mode, the level, the player on
+ * turn, the seeds of all pits and stores separated by commas and the pit
+ * number of the move. The evaluation parameters and tablebase are not
+ * written, the process reading the file must use the same.
+ */
+public final class SearchCache implements SearchCacheMXBean {
+
+    /**
+     * The name under which a cache is registered.
+     */
+    public static final String OBJECT_NAME = "kalah:type=SearchCache";
+
+    /**
+     * The number of independently locked stripes.
+     */
+    private static final int STRIPES = 16;
+
+    private final int capacity;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Instantiates a new {@link SearchCache} object.
+     *
+     * @param capacity The maximum number of entries, rounded up to a multiple
+     *        of the number of stripes.
+     */
+    public SearchCache(int capacity) {
+        int stripeCapacity =
+            Math.max(1, (capacity + STRIPES - 1) / STRIPES);
+        this.capacity = stripeCapacity * STRIPES;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+    }
+
+    /**
+     * Registers this cache as an MXBean named {@value #OBJECT_NAME}, which
+     * only one cache of a process can be.
+     *
+     * @return {@code false} if the registration failed, e.g., since another
+     *         cache has been registered before.
+     */
+    public boolean register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                new ObjectName(OBJECT_NAME));
+            return true;
+        } catch (JMException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Looks up the move of the machine for a board.
+     *
+     * @param board The board with the machine on turn.
+     * @param mode The search mode.
+     * @param level The level of the search.
+     * @param tablebase The endgame tablebase of the search, {@code null} for
+     *        none.
+     * @return The pit number of the move, {@code 0} if there is none.
+     */
+    public int get(BoardImpl board, SearchMode mode, int level,
+        EndgameTablebase tablebase) {
+        Key key = new Key(board, mode, level, tablebase);
+        Integer pit = stripeOf(key).get(key);
+        if (pit == null) {
+            misses.increment();
+            return 0;
+        }
+        hits.increment();
+        return pit;
+    }
+
+    /**
+     * Stores the move of the machine for a board.
+     *
+     * @param board The board with the machine on turn.
+     * @param mode The search mode.
+     * @param level The level of the search.
+     * @param tablebase The endgame tablebase of the search, {@code null} for
+     *        none.
+     * @param pit The pit number of the move.
+     */
+    public void put(BoardImpl board, SearchMode mode, int level,
+        EndgameTablebase tablebase, int pit) {
+        Key key = new Key(board, mode, level, tablebase);
+        stripeOf(key).put(key, pit);
+    }
+
+    /**
+     * Gets the stripe responsible for a key.
+     *
+     * @param key The key.
+     * @return The stripe.
+     */
+    private Stripe stripeOf(Key key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Reads the entries of a file written by
+     * {@link #write(Path, EvalParams, EndgameTablebase)} into this cache.
+     *
+     * @param file The path of the file.
+     * @param params The evaluation parameters the moves have been searched
+     *        with.
+     * @param tablebase The endgame tablebase the moves have been searched
+     *        with, {@code null} for none.
+     * @return The number of entries read.
+     * @throws IOException If the file cannot be read or has an invalid line,
+     *         e.g., one whose move is not a non-empty pit of the machine.
+     */
+    public int read(Path file, EvalParams params, EndgameTablebase tablebase)
+        throws IOException {
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    String[] words = line.trim().split("\\s+");
+                    String[] pits = words[3].split(",");
+                    int[] state = new int[pits.length + 3];
+                    for (int i = 0; i < pits.length; i++) {
+                        state[i] = Integer.parseInt(pits[i]);
+                    }
+                    state[pits.length] = Player.valueOf(words[2]).ordinal();
+                    state[pits.length + 1] = Integer.parseInt(words[1]);
+                    state[pits.length + 2] =
+                        SearchMode.valueOf(words[0]).ordinal();
+                    int pit = Integer.parseInt(words[4]);
+                    if (!isMachineMove(state, pits.length, pit)) {
+                        throw new IllegalArgumentException(
+                            "Not a move of the machine");
+                    }
+                    Key key = new Key(state, params, tablebase);
+                    stripeOf(key).put(key, pit);
+                    count++;
+                } catch (IllegalArgumentException
+                    | ArrayIndexOutOfBoundsException e) {
+                    throw new IOException("Invalid line in " + file + ": "
+                        + line, e);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether a line of a cache file holds a move the machine may
+     * play, so that a damaged file cannot lead to an illegal move.
+     *
+     * @param state The seeds, the player on turn, the level and the search
+     *        mode.
+     * @param pitCount The number of pits and stores of the board.
+     * @param pit The pit number of the move.
+     * @return {@code true} if the machine is on turn and the pit is one of
+     *         its pits which is not empty.
+     */
+    private static boolean isMachineMove(int[] state, int pitCount,
+        int pit) {
+        int pitsPerPlayer = pitCount / 2 - 1;
+        int firstPit = pitsPerPlayer + 2;
+        return pitCount % 2 == 0 && pitsPerPlayer > 0
+            && state[pitCount] == Player.MACHINE.ordinal()
+            && pit >= firstPit && pit < firstPit + pitsPerPlayer
+            && state[pit - 1] > 0;
+    }
+
+    /**
+     * Writes the entries of this cache which have been searched with the
+     * given settings to a file.
+     *
+     * @param file The path of the file.
+     * @param params The evaluation parameters of the entries to write.
+     * @param tablebase The endgame tablebase of the entries to write,
+     *        {@code null} for none.
+     * @return The number of entries written.
+     * @throws IOException If the file cannot be written.
+     */
+    public int write(Path file, EvalParams params, EndgameTablebase tablebase)
+        throws IOException {
+        int count = 0;
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            for (Stripe stripe : stripes) {
+                for (Map.Entry<Key, Integer> entry : stripe.entries()) {
+                    Key key = entry.getKey();
+                    if (key.params.equals(params)
+                        && key.tablebase == tablebase) {
+                        writer.write(key.format() + " " + entry.getValue()
+                            + "\n");
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSize() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * The key of an entry. The state holds the seeds of all pits and stores,
+     * followed by the player on turn, the level and the search mode.
+     */
+    private static final class Key {
+
+        private final int[] state;
+        private final EvalParams params;
+        private final EndgameTablebase tablebase;
+        private final int hash;
+
+        /**
+         * Instantiates a new {@link Key} object for a search of a board.
+         *
+         * @param board The board.
+         * @param mode The search mode.
+         * @param level The level of the search.
+         * @param tablebase The endgame tablebase, {@code null} for none.
+         */
+        private Key(BoardImpl board, SearchMode mode, int level,
+            EndgameTablebase tablebase) {
+            this(stateOf(board, mode, level), board.getEvalParams(),
+                tablebase);
+        }
+
+        /**
+         * Instantiates a new {@link Key} object.
+         *
+         * @param state The seeds, the player on turn, the level and the
+         *        search mode.
+         * @param params The evaluation parameters.
+         * @param tablebase The endgame tablebase, {@code null} for none.
+         */
+        private Key(int[] state, EvalParams params,
+            EndgameTablebase tablebase) {
+            this.state = state;
+            this.params = params;
+            this.tablebase = tablebase;
+            this.hash = (Arrays.hashCode(state) * 31 + params.hashCode()) * 31
+                + System.identityHashCode(tablebase);
+        }
+
+        /**
+         * Collects the state of a search of a board.
+         *
+         * @param board The board.
+         * @param mode The search mode.
+         * @param level The level of the search.
+         * @return The state.
+         */
+        private static int[] stateOf(BoardImpl board, SearchMode mode,
+            int level) {
+            int pitCount = (board.getPitsPerPlayer() + 1) * 2;
+            int[] state = new int[pitCount + 3];
+            for (int pit = 1; pit <= pitCount; pit++) {
+                state[pit - 1] = board.getSeeds(pit);
+            }
+            state[pitCount] = board.getOpeningPlayer().ordinal();
+            state[pitCount + 1] = level;
+            state[pitCount + 2] = mode.ordinal();
+            return state;
+        }
+
+        /**
+         * Formats the state like a line of a cache file without the move.
+         *
+         * @return The search mode, level, player on turn and seeds.
+         */
+        private String format() {
+            int pitCount = state.length - 3;
+            StringBuilder seeds = new StringBuilder();
+            for (int i = 0; i < pitCount; i++) {
+                seeds.append(i > 0 ? "," : "").append(state[i]);
+            }
+            return SearchMode.values()[state[pitCount + 2]] + " "
+                + state[pitCount + 1] + " "
+                + Player.values()[state[pitCount]] + " " + seeds;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && tablebase == key.tablebase
+                && Arrays.equals(state, key.state)
+                && params.equals(key.params);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+    /**
+     * A stripe of the cache with its own lock, which evicts its least recently
+     * used entry once it is full.
+     */
+    private final class Stripe {
+
+        private final Map<Key, Integer> map;
+
+        /**
+         * Instantiates a new {@link Stripe} object.
+         *
+         * @param stripeCapacity The maximum number of entries.
+         */
+        private Stripe(int stripeCapacity) {
+            this.map = new LinkedHashMap<Key, Integer>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                    Map.Entry<Key, Integer> eldest) {
+                    if (size() > stripeCapacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        /**
+         * Looks up a key and marks it as used.
+         *
+         * @param key The key.
+         * @return The move, {@code null} if there is none.
+         */
+        private synchronized Integer get(Key key) {
+            return map.get(key);
+        }
+
+        /**
+         * Stores a move.
+         *
+         * @param key The key.
+         * @param pit The move.
+         */
+        private synchronized void put(Key key, int pit) {
+            map.put(key, pit);
+        }
+
+        /**
+         * Gets the number of entries.
+         *
+         * @return The size.
+         */
+        private synchronized int size() {
+            return map.size();
+        }
+
+        /**
+         * Copies the entries from the least to the most recently used one.
+         *
+         * @return The entries.
+         */
+        private synchronized List<Map.Entry<Key, Integer>> entries() {
+            List<Map.Entry<Key, Integer>> entries = new ArrayList<>();
+            for (Map.Entry<Key, Integer> entry : map.entrySet()) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+            }
+            return entries;
+        }
+
+    }
+
+}
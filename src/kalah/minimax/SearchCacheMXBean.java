@@ -0,0 +1,51 @@
+package kalah.minimax;
+
+/**
+ * The management interface of a {@link SearchCache}, which exposes its
+ * metrics via JMX.
+ */
+public interface SearchCacheMXBean {
+
+    /**
+     * Gets the number of lookups which found a move.
+     *
+     * @return The number of hits.
+     */
+    long getHits();
+
+    /**
+     * Gets the number of lookups which found no move.
+     *
+     * @return The number of misses.
+     */
+    long getMisses();
+
+    /**
+     * Calculates the share of lookups which found a move.
+     *
+     * @return The hit rate between {@code 0} and {@code 1}.
+     */
+    double getHitRate();
+
+    /**
+     * Gets the number of entries removed to make room for new ones.
+     *
+     * @return The number of evictions.
+     */
+    long getEvictions();
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return The size of the cache.
+     */
+    int getSize();
+
+    /**
+     * Gets the maximum number of entries.
+     *
+     * @return The capacity of the cache.
+     */
+    int getCapacity();
+
+}
@@ -0,0 +1,85 @@
+package kalah.minimax;
+
+/**
+ * The available algorithms to search for the best machine move. All of them
+ * pick the same move for the same board and level up to level 8; at higher
+ * levels, the integer scores of the alpha-beta searches can tie where
+ * {@link #MINIMAX} has a preference, see {@link AlphaBeta}.
+ */
+public enum SearchMode {
+
+    /**
+     * Exhaustive depth-first search of the whole evaluation tree.
+     */
+    MINIMAX {
+        @Override
+        public Search create(int level, int threads, ScoreTable table) {
+            return new Minimax(level);
+        }
+    },
+
+    /**
+     * Alpha-beta search, which skips subtrees that cannot change the move.
+     */
+    ALPHA_BETA {
+        @Override
+        public Search create(int level, int threads, ScoreTable table) {
+            return new AlphaBeta(level, true, table);
+        }
+    },
+
+    /**
+     * Alpha-beta search which searches the moves of the root in parallel.
+     */
+    PARALLEL {
+        @Override
+        public Search create(int level, int threads, ScoreTable table) {
+            return new ParallelSearch(level, threads, table);
+        }
+
+        @Override
+        public ScoreTable createTable(int sizeInMegabytes) {
+            return new SharedTranspositionTable(sizeInMegabytes);
+        }
+    },
+
+    /**
+     * Alpha-beta searches of the whole tree in several threads, which share
+     * their results through a transposition table.
+     */
+    LAZY_SMP {
+        @Override
+        public Search create(int level, int threads, ScoreTable table) {
+            return new LazySmp(level, threads, table);
+        }
+
+        @Override
+        public ScoreTable createTable(int sizeInMegabytes) {
+            return new SharedTranspositionTable(sizeInMegabytes);
+        }
+    };
+
+    /**
+     * Creates a new search of this mode.
+     *
+     * @param level The maximum depth of the evaluation tree.
+     * @param threads The number of threads the search may use. Sequential
+     *        searches ignore it.
+     * @param table The transposition table the search may use, {@code null}
+     *        for none. Searches which do not prune ignore it.
+     * @return The search.
+     */
+    public abstract Search create(int level, int threads, ScoreTable table);
+
+    /**
+     * Creates a transposition table suitable for the searches of this mode,
+     * which is thread-safe for parallel modes.
+     *
+     * @param sizeInMegabytes The memory available for the entries.
+     * @return The transposition table.
+     */
+    public ScoreTable createTable(int sizeInMegabytes) {
+        return new TranspositionTable(sizeInMegabytes);
+    }
+
+}
@@ -0,0 +1,192 @@
+package kalah.minimax;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Sums up the statistics of all searches of the machine in the process. The
+ * totals are striped counters, so games in many threads can record their
+ * searches without contending for a lock. The only instance is registered as
+ * an MXBean named {@value #OBJECT_NAME} on first use, so the totals can be
+ * watched with any JMX console.
+ */
+public final class SearchMonitor implements SearchMonitorMXBean {
+
+    /**
+     * The name under which the monitor is registered.
+     */
+    public static final String OBJECT_NAME = "kalah:type=SearchStats";
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder leaves = new LongAdder();
+    private final LongAdder cutoffs = new LongAdder();
+    private final LongAdder tableProbes = new LongAdder();
+    private final LongAdder tableHits = new LongAdder();
+    private final LongAdder elapsedNanos = new LongAdder();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private volatile SearchStats lastSearch;
+
+    /**
+     * Instantiates the only {@link SearchMonitor} object.
+     */
+    private SearchMonitor() {
+    }
+
+    /**
+     * Gets the monitor of the process and registers it on first use.
+     *
+     * @return The monitor.
+     */
+    public static SearchMonitor getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Adds the statistics of a search to the totals.
+     *
+     * @param stats The statistics of the search.
+     */
+    public void record(SearchStats stats) {
+        searches.increment();
+        nodes.add(stats.getNodes());
+        leaves.add(stats.getLeaves());
+        cutoffs.add(stats.getCutoffs());
+        tableProbes.add(stats.getTableProbes());
+        tableHits.add(stats.getTableHits());
+        elapsedNanos.add(stats.getElapsedNanos());
+        maxDepth.accumulate(stats.getMaxDepth());
+        lastSearch = stats;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLeaves() {
+        return leaves.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCutoffs() {
+        return cutoffs.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTableProbes() {
+        return tableProbes.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTableHits() {
+        return tableHits.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxDepth() {
+        return (int) maxDepth.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSearchMillis() {
+        return elapsedNanos.sum() / 1_000_000;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Searches running at the same time count with their full time, so this
+     * is the rate of a single search rather than that of the process.
+     */
+    @Override
+    public double getNodesPerSecond() {
+        long nanos = elapsedNanos.sum();
+        return nanos == 0 ? 0 : nodes.sum() * 1e9 / nanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getLastSearch() {
+        SearchStats stats = lastSearch;
+        return stats == null ? "" : stats.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        searches.reset();
+        nodes.reset();
+        leaves.reset();
+        cutoffs.reset();
+        tableProbes.reset();
+        tableHits.reset();
+        elapsedNanos.reset();
+        maxDepth.reset();
+        lastSearch = null;
+    }
+
+    /**
+     * Holds the only instance, which is created and registered when the
+     * holder is initialised by the first call of {@link #getInstance()}.
+     */
+    private static final class Holder {
+
+        private static final SearchMonitor INSTANCE = register();
+
+        /**
+         * Creates the monitor and registers it on the platform MBean server.
+         *
+         * @return The monitor, which also works if the registration fails.
+         */
+        private static SearchMonitor register() {
+            SearchMonitor monitor = new SearchMonitor();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    monitor, new ObjectName(OBJECT_NAME));
+            } catch (JMException | SecurityException e) {
+                // JMX is only a window on the totals, the games go on without.
+            }
+            return monitor;
+        }
+
+    }
+
+}
@@ -0,0 +1,85 @@
+package kalah.minimax;
+
+/**
+ * The management interface of the {@link SearchMonitor}, which exposes the
+ * totals of all searches of the machine since the start or the last reset via
+ * JMX.
+ */
+public interface SearchMonitorMXBean {
+
+    /**
+     * Gets the number of searches.
+     *
+     * @return The number of recorded searches.
+     */
+    long getSearches();
+
+    /**
+     * Gets the number of visited boards of all searches.
+     *
+     * @return The total number of nodes.
+     */
+    long getNodes();
+
+    /**
+     * Gets the number of evaluated leaves of all searches.
+     *
+     * @return The total number of leaves.
+     */
+    long getLeaves();
+
+    /**
+     * Gets the number of cut-offs of all searches.
+     *
+     * @return The total number of cut-offs.
+     */
+    long getCutoffs();
+
+    /**
+     * Gets the number of lookups in the transposition tables.
+     *
+     * @return The total number of probes.
+     */
+    long getTableProbes();
+
+    /**
+     * Gets the number of lookups which found the board.
+     *
+     * @return The total number of hits.
+     */
+    long getTableHits();
+
+    /**
+     * Gets the deepest depth reached by any search.
+     *
+     * @return The maximum depth.
+     */
+    int getMaxDepth();
+
+    /**
+     * Gets the wall-clock time of all searches.
+     *
+     * @return The total time in milliseconds.
+     */
+    long getSearchMillis();
+
+    /**
+     * Calculates the visited boards per second of search time.
+     *
+     * @return The average nodes per second.
+     */
+    double getNodesPerSecond();
+
+    /**
+     * Gets the statistics of the most recent search.
+     *
+     * @return A description of the statistics, empty before the first search.
+     */
+    String getLastSearch();
+
+    /**
+     * Resets all totals to {@code 0}.
+     */
+    void reset();
+
+}
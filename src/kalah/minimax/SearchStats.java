@@ -0,0 +1,216 @@
+package kalah.minimax;
+
+/**
+ * The statistics of a single search for a move. Each {@link AlphaBeta}
+ * instance counts in its own fields, so the counters need no synchronisation
+ * even in parallel searches. Searches running several instances add their
+ * statistics up once the threads have been joined.
+ *
+ * The nodes are all visited boards except the root, like
+ * {@link Search#getNodeCount()}. Most of them are either expanded or leaves,
+ * the others have been resolved by the transposition table.
+ */
+public final class SearchStats {
+
+    private long nodes;
+    private long expandedNodes;
+    private long leaves;
+    private long cutoffs;
+    private long firstMoveCutoffs;
+    private long tableProbes;
+    private long tableHits;
+    private int maxDepth;
+    private long elapsedNanos;
+
+    /**
+     * Instantiates a new {@link SearchStats} object with all counters at
+     * {@code 0}.
+     */
+    public SearchStats() {
+    }
+
+    /**
+     * Instantiates a new {@link SearchStats} object.
+     *
+     * @param nodes The number of visited boards.
+     * @param expandedNodes The number of boards whose children were searched.
+     * @param leaves The number of boards evaluated without children.
+     * @param cutoffs The number of expanded boards cut off early.
+     * @param firstMoveCutoffs The cut-offs by the first move searched.
+     * @param tableProbes The number of lookups in the transposition table.
+     * @param tableHits The lookups which found the board.
+     * @param maxDepth The deepest depth reached.
+     */
+    SearchStats(long nodes, long expandedNodes, long leaves, long cutoffs,
+        long firstMoveCutoffs, long tableProbes, long tableHits,
+        int maxDepth) {
+        this.nodes = nodes;
+        this.expandedNodes = expandedNodes;
+        this.leaves = leaves;
+        this.cutoffs = cutoffs;
+        this.firstMoveCutoffs = firstMoveCutoffs;
+        this.tableProbes = tableProbes;
+        this.tableHits = tableHits;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Adds the counters of another search, e.g., of a helper thread or of a
+     * previous level. The deepest depth is the maximum of both, the elapsed
+     * time stays unchanged since the searches may have run at the same time.
+     *
+     * @param other The statistics to add.
+     */
+    void add(SearchStats other) {
+        nodes += other.nodes;
+        expandedNodes += other.expandedNodes;
+        leaves += other.leaves;
+        cutoffs += other.cutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        tableProbes += other.tableProbes;
+        tableHits += other.tableHits;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+    }
+
+    /**
+     * Sets the wall-clock time of the search.
+     *
+     * @param elapsedNanos The elapsed time in nanoseconds.
+     */
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the number of visited boards, which includes the leaves of the
+     * evaluation tree but not its root.
+     *
+     * @return The number of visited boards.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the number of boards whose children have been searched.
+     *
+     * @return The number of expanded boards.
+     */
+    public long getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * Gets the number of boards which have been evaluated without searching
+     * their children, since they are on the depth limit, the game is over or
+     * the endgame tablebase knows the result.
+     *
+     * @return The number of leaves.
+     */
+    public long getLeaves() {
+        return leaves;
+    }
+
+    /**
+     * Gets the number of expanded boards whose remaining children have been
+     * skipped since the opponent avoids the board anyway.
+     *
+     * @return The number of cut-offs.
+     */
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * Gets the number of cut-offs caused by the first move searched, which is
+     * a measure of the quality of the move ordering.
+     *
+     * @return The number of cut-offs by the first move.
+     */
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    /**
+     * Gets the number of lookups in the transposition table.
+     *
+     * @return The number of probes, {@code 0} without a table.
+     */
+    public long getTableProbes() {
+        return tableProbes;
+    }
+
+    /**
+     * Gets the number of lookups in the transposition table which found the
+     * board, whether or not its stored score could be used.
+     *
+     * @return The number of hits.
+     */
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    /**
+     * Gets the deepest depth of a visited board, where the children of the
+     * root have depth 1.
+     *
+     * @return The maximum depth.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Gets the wall-clock time of the search.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Calculates the number of visited boards per second.
+     *
+     * @return The nodes per second, {@code 0} if no time has been measured.
+     */
+    public double getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Calculates the effective branching factor, i.e., the number of children
+     * a board would need to have on average for a full tree of the maximum
+     * depth to hold as many boards as have been visited.
+     *
+     * @return The effective branching factor, {@code 0} if nothing has been
+     *         searched.
+     */
+    public double getBranchingFactor() {
+        if (maxDepth == 0 || nodes == 0) {
+            return 0;
+        }
+        return Math.pow(nodes, 1.0 / maxDepth);
+    }
+
+    /**
+     * Calculates the share of lookups in the transposition table which found
+     * the board.
+     *
+     * @return The hit rate between {@code 0} and {@code 1}.
+     */
+    public double getTableHitRate() {
+        return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return nodes + " nodes, " + leaves + " leaves, depth " + maxDepth
+            + ", " + cutoffs + " cut-offs, " + tableHits + "/" + tableProbes
+            + " table hits, " + elapsedNanos / 1_000_000 + " ms";
+    }
+
+}
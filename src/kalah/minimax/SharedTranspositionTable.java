@@ -0,0 +1,192 @@
+package kalah.minimax;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ScoreTable} which several threads use at the same time without
+ * locks. Every entry occupies two consecutive longs of a single array: a
+ * check word and a data word, which holds the packed data in its lower and the
+ * score in its upper half. The check word is the XOR of the key and the data
+ * word, so an entry whose words have been written by different threads at the
+ * same time does not verify and is treated as missing. Entries are grouped
+ * into buckets of two with the same replacement scheme as
+ * {@link TranspositionTable}.
+ *
+ * The statistics are kept in {@link LongAdder}s, which threads update without
+ * contention.
+ */
+public class SharedTranspositionTable implements ScoreTable {
+
+    /**
+     * The number of longs one entry occupies in the array.
+     */
+    static final int ENTRY_LONGS = 2;
+
+    private final long[] entries;
+    private final int mask;
+    private volatile int generation;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    /**
+     * Instantiates a new {@link SharedTranspositionTable} object whose array
+     * occupies at most the given memory.
+     *
+     * @param sizeInMegabytes The memory available for the entries.
+     */
+    public SharedTranspositionTable(int sizeInMegabytes) {
+        long bytes = (long) Math.max(sizeInMegabytes, 1) << 20;
+        int count = Integer.highestOneBit((int) Math.min(
+            bytes / (ENTRY_LONGS * Long.BYTES), 1 << 28));
+        this.entries = new long[count * ENTRY_LONGS];
+        this.mask = count - 2;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void newSearch() {
+        generation = (generation + 1) & 0x3f;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean probe(long hash, int depth, int remainingDepth,
+        Entry entry) {
+        probes.increment();
+        long key = ScoreTable.key(hash, depth, remainingDepth);
+        int bucket = (int) key & mask;
+        long match = pack(depth, remainingDepth, 0, 0, 0);
+
+        for (int index = bucket; index < bucket + 2; index++) {
+            int base = index * ENTRY_LONGS;
+            long check = entries[base];
+            long data = entries[base + 1];
+            if ((check ^ data) == key && (data & 0xffff) == match) {
+                hits.increment();
+                entry.set(data >> 32, (int) (data >>> 16) & 0x3,
+                    (int) (data >>> 18) & 0xff);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void store(long hash, int depth, int remainingDepth, long score,
+        int bound, int move) {
+        if (score != (int) score) {
+            return;
+        }
+        stores.increment();
+        long key = ScoreTable.key(hash, depth, remainingDepth);
+        int bucket = (int) key & mask;
+        int currentGeneration = generation;
+        long data = pack(depth, remainingDepth, bound, move,
+            currentGeneration) | score << 32;
+
+        // The first entry of the bucket may be changed by another thread in
+        // the meantime, which at worst leads to a worse choice of the entry to
+        // replace.
+        int base = bucket * ENTRY_LONGS;
+        long storedData = entries[base + 1];
+        long storedKey = entries[base] ^ storedData;
+        if (storedKey != key && storedKey != 0
+            && (storedData >>> 26 & 0x3f) == currentGeneration
+            && (storedData >>> 8 & 0xff) > remainingDepth) {
+            base += ENTRY_LONGS;
+        }
+
+        entries[base + 1] = data;
+        entries[base] = key ^ data;
+    }
+
+    /**
+     * Packs the data of an entry into the lower half of a long like
+     * {@link TranspositionTable} does.
+     *
+     * @param depth The depth of the board in the evaluation tree.
+     * @param remainingDepth The depth of the subtree below the board.
+     * @param bound The type of the score.
+     * @param move The pit number of the best move found.
+     * @param generation The generation of the entry.
+     * @return The packed data.
+     */
+    private static long pack(int depth, int remainingDepth, int bound,
+        int move, int generation) {
+        return (depth & 0xff) | (remainingDepth & 0xff) << 8 | bound << 16
+            | (move & 0xff) << 18 | (long) generation << 26;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * No other thread may use the table meanwhile.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(entries, 0);
+        probes.reset();
+        hits.reset();
+        stores.reset();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getCapacity() {
+        return entries.length / ENTRY_LONGS;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMemoryFootprint() {
+        return (long) entries.length * Long.BYTES;
+    }
+
+}
@@ -0,0 +1,179 @@
+package kalah.minimax;
+
+import java.util.Arrays;
+
+/**
+ * A {@link ScoreTable} for a single thread. The entries are held in primitive
+ * arrays and grouped into buckets of two. The first entry of a bucket is only
+ * replaced by an entry with at least the same remaining depth or by an entry of
+ * a newer search, the second one is always replaced.
+ */
+public class TranspositionTable implements ScoreTable {
+
+    /**
+     * The number of bytes one entry occupies in the arrays.
+     */
+    static final int ENTRY_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private final long[] keys;
+    private final int[] scores;
+    private final int[] data;
+    private final int mask;
+    private int generation;
+
+    private long probes;
+    private long hits;
+    private long stores;
+
+    /**
+     * Instantiates a new {@link TranspositionTable} object whose arrays occupy
+     * at most the given memory.
+     *
+     * @param sizeInMegabytes The memory available for the entries.
+     */
+    public TranspositionTable(int sizeInMegabytes) {
+        long bytes = (long) Math.max(sizeInMegabytes, 1) << 20;
+        int entries = Integer.highestOneBit(
+            (int) Math.min(bytes / ENTRY_BYTES, 1 << 30));
+        this.keys = new long[entries];
+        this.scores = new int[entries];
+        this.data = new int[entries];
+        this.mask = entries - 2;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void newSearch() {
+        generation = (generation + 1) & 0x3f;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean probe(long hash, int depth, int remainingDepth,
+        Entry entry) {
+        probes++;
+        long key = ScoreTable.key(hash, depth, remainingDepth);
+        int bucket = (int) key & mask;
+        int match = pack(depth, remainingDepth, 0, 0) & 0xffff;
+
+        for (int index = bucket; index < bucket + 2; index++) {
+            if (keys[index] == key && (data[index] & 0xffff) == match) {
+                hits++;
+                entry.set(scores[index], (data[index] >>> 16) & 0x3,
+                    (data[index] >>> 18) & 0xff);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void store(long hash, int depth, int remainingDepth, long score,
+        int bound, int move) {
+        if (score != (int) score) {
+            return;
+        }
+        stores++;
+        long key = ScoreTable.key(hash, depth, remainingDepth);
+        int bucket = (int) key & mask;
+        int entry = pack(depth, remainingDepth, bound, move);
+
+        int index = bucket + 1;
+        int stored = data[bucket];
+        if (keys[bucket] == key || keys[bucket] == 0
+            || (stored >>> 26) != generation
+            || (stored >>> 8 & 0xff) <= remainingDepth) {
+            index = bucket;
+        }
+
+        keys[index] = key;
+        scores[index] = (int) score;
+        data[index] = entry;
+    }
+
+    /**
+     * Packs the data of an entry into an int: the depth in the lowest byte,
+     * followed by the remaining depth, two bits for the type of the score, a
+     * byte for the move and six bits for the generation.
+     *
+     * @param depth The depth of the board in the evaluation tree.
+     * @param remainingDepth The depth of the subtree below the board.
+     * @param bound The type of the score.
+     * @param move The pit number of the best move found.
+     * @return The packed data.
+     */
+    private int pack(int depth, int remainingDepth, int bound, int move) {
+        return (depth & 0xff) | (remainingDepth & 0xff) << 8 | bound << 16
+            | (move & 0xff) << 18 | generation << 26;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0);
+        probes = 0;
+        hits = 0;
+        stores = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * This table is not.
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getProbes() {
+        return probes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getStores() {
+        return stores;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMemoryFootprint() {
+        return (long) keys.length * ENTRY_BYTES;
+    }
+
+}
@@ -1,6 +1,11 @@
 package kalah.model;
 
 import kalah.exceptions.IllegalMoveException;
+import kalah.minimax.EndgameTablebase;
+import kalah.minimax.OpeningBook;
+import kalah.minimax.SearchCache;
+import kalah.minimax.SearchMode;
+import kalah.minimax.SearchStats;
 
 /**
  * Interface for the Mancala game Kalah. We call the pods/houses of the players
@@ -56,6 +61,36 @@ public interface Board extends Cloneable {
    */
   Board move(int pit);
 
+  /**
+   * Executes a move of the player on turn, whoever it is. Unlike
+   * {@link #move(int)}, this method reports an illegal move by its result
+   * instead of an exception, so it is cheap enough to replay games or to
+   * drive self-play. This method does not change the state of this instance.
+   *
+   * @param pit The number of the pit of the player on turn whose seeds will
+   *        be sowed counter-clockwise.
+   * @return A new board with the move executed, {@code null} if the move is
+   *         not legal, see {@link #isLegalMove(int)}.
+   */
+  Board play(int pit);
+
+  /**
+   * Checks if the player on turn may sow the seeds of a pit, i.e., the game
+   * is not over and the pit is a non-empty pit of this player.
+   *
+   * @param pit The number of the pit, which may be off the grid.
+   * @return {@code true} if and only if the move is legal.
+   */
+  boolean isLegalMove(int pit);
+
+  /**
+   * Gets the legal moves of the player on turn.
+   *
+   * @return The numbers of the non-empty pits of the player on turn in
+   *         ascending order, an empty array if the game is over.
+   */
+  int[] getLegalMoves();
+
   /**
    * Executes a machine move. This method does not change the state of this
    * instance, which is treated here as immutable. Instead, a new board/game
@@ -67,6 +102,29 @@ public interface Board extends Cloneable {
    */
   Board machineMove();
 
+  /**
+   * Executes a move of the player on turn, chosen by the machine's search
+   * with the settings of this board. Unlike {@link #machineMove()}, the
+   * machine also plays for the human, so two machines can play each other.
+   * This method does not change the state of this instance.
+   *
+   * @return A new board with the move executed.
+   * @throws IllegalMoveException If the game is already over.
+   */
+  Board searchMove();
+
+  /**
+   * Gets the statistics of the search which chose the last move, if this
+   * board has been returned by {@link #machineMove()} or
+   * {@link #searchMove()}. All searches are also added up by the
+   * {@link kalah.minimax.SearchMonitor}.
+   *
+   * @return The statistics, {@code null} if the last move was no searched
+   *         move of the machine, e.g., a move from the opening book or the
+   *         search cache.
+   */
+  SearchStats getSearchStats();
+
   /**
    * Sets the skill level of the machine.
    *
@@ -74,6 +132,69 @@ public interface Board extends Cloneable {
    */
   void setLevel(int level);
 
+  /**
+   * Sets the algorithm the machine uses to search for its moves. Up to
+   * level 8, all algorithms pick the same move, but differ in the time they
+   * need.
+   *
+   * @param searchMode The search algorithm.
+   */
+  void setSearchMode(SearchMode searchMode);
+
+  /**
+   * Sets the number of threads the machine may use to search for its moves.
+   * Only parallel search modes use more than one thread.
+   *
+   * @param threads The number of threads, must be at least 1. The default is
+   *        the number of available processors.
+   */
+  void setThreads(int threads);
+
+  /**
+   * Sets the time the machine may spend on each move. With a time budget, the
+   * machine searches one level after another, starting at level 1, and plays
+   * the best move of the deepest level it completes in time. The level set by
+   * {@link #setLevel(int)} is ignored then.
+   *
+   * @param millis The time per move in milliseconds, {@code 0} to search up to
+   *        the level instead.
+   */
+  void setTimeBudget(long millis);
+
+  /**
+   * Sets an endgame tablebase, which lets the machine play positions with few
+   * seeds left in the pits perfectly. It only applies to boards of the same
+   * number of pits per player.
+   *
+   * @param tablebase The tablebase, {@code null} for none.
+   */
+  void setTablebase(EndgameTablebase tablebase);
+
+  /**
+   * Sets an opening book, whose moves the machine plays without searching as
+   * long as the game is still in the book.
+   *
+   * @param book The opening book, {@code null} for none.
+   */
+  void setOpeningBook(OpeningBook book);
+
+  /**
+   * Sets a cache of the moves of the machine's searches, which may be shared
+   * by all games of the process. Searches bounded by a time budget are not
+   * cached.
+   *
+   * @param cache The cache, {@code null} for none.
+   */
+  void setSearchCache(SearchCache cache);
+
+  /**
+   * Sets the weights of the local score by which the machine appraises the
+   * boards of its search. The default is {@link EvalParams#DEFAULT}.
+   *
+   * @param params The evaluation parameters.
+   */
+  void setEvalParams(EvalParams params);
+
   /**
    * Checks if the game is over. Either one player has won or there is a tie,
    * i.e., both players gained the same number of seeds.
@@ -118,6 +239,22 @@ public interface Board extends Cloneable {
    */
   int targetPitOfLastMove();
 
+  /**
+   * Checks if the last executed move grants its player another move, i.e.,
+   * its last seed landed in her own store and the game is not over.
+   *
+   * @return {@code true} if the player of the last move moves again.
+   */
+  boolean lastMoveGrantsExtraTurn();
+
+  /**
+   * Checks if the last executed move captured the seeds of the opposite pit
+   * of the opponent.
+   *
+   * @return {@code true} if the last move made a capture.
+   */
+  boolean lastMoveCaptured();
+
   /**
    * Gets the number of pits per player in this game.
    *
@@ -1,27 +1,84 @@
 package kalah.model;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
 import kalah.exceptions.IllegalMoveException;
-import kalah.minimax.Node;
+import kalah.minimax.EndgameTablebase;
+import kalah.minimax.IterativeDeepening;
+import kalah.minimax.OpeningBook;
+import kalah.minimax.ScoreTable;
+import kalah.minimax.Search;
+import kalah.minimax.SearchCache;
+import kalah.minimax.SearchMode;
+import kalah.minimax.SearchMonitor;
+import kalah.minimax.SearchStats;
 
 /**
  * {@inheritDoc}
  */
 public class BoardImpl implements Board {
 
+    /**
+     * The factor by which {@link #calcScaledScore(int)} scales the local
+     * score. It is the least common multiple of the depths 1 to 8 and even,
+     * so the weights of 1.5 and the victory scores of 500 per depth become
+     * integers on these depths.
+     */
+    public static final int SCORE_SCALE = 840;
+
     private Player openingPlayer;
     private int level;
+    private SearchMode searchMode = SearchMode.ALPHA_BETA;
+    private long timeBudget;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The transposition table of the machine's searches, which is shared by
+     * all boards of a game. Created on the first machine move to suit the
+     * search mode.
+     */
+    private ScoreTable table;
+    private EndgameTablebase tablebase;
+    private OpeningBook book;
+    private SearchCache cache;
+    private EvalParams params = EvalParams.DEFAULT;
     private int currentPitsPerPlayer;
     private int currentSeedsPerPit;
 
-    private Pit[][] pits;
+    /**
+     * The seeds of all pits and stores, indexed by their pit number. Index 0 is
+     * unused so the pit numbers of the {@link Board} interface can be used
+     * without any conversion. Ownership and store status follow from the index
+     * only, see {@link #getOwner(int)} and {@link #isStore(int)}.
+     */
+    private int[] seeds;
+
+    /**
+     * The lookup tables of the pit numbers, shared by all boards with the
+     * same number of pits per player.
+     */
+    private Geometry geometry;
 
     private int sourcePitOfLastMove = 0;
     private int targetPitOfLastMove = 0;
 
+    /**
+     * The statistics of the search which chose the last move, which is not
+     * passed on to copies of this board.
+     */
+    private SearchStats searchStats;
+
+    /**
+     * The Zobrist hash of the seeds and the player on turn, which is kept up
+     * to date with every change of {@link #seeds} or {@link #openingPlayer}.
+     */
+    private long hash;
+    private ZobristKeys keys;
+
+    /**
+     * The parts of the local score which are kept up to date with every
+     * change of {@link #seeds}, see {@link #calcScore(int)}.
+     */
+    private ScoreComponents components;
+
     /**
      * Instantiates a new {@link BoardImpl} object.
      *
@@ -38,34 +95,24 @@ public class BoardImpl implements Board {
         this.level = level;
         this.currentPitsPerPlayer = pitsCount;
         this.currentSeedsPerPit = seedsCount;
-        this.pits = new Pit[2][pitsCount + 1];
+        this.seeds = new int[(pitsCount + 1) * 2 + 1];
+        this.geometry = Geometry.of(pitsCount);
+        this.keys = ZobristKeys.of(pitsCount, pitsCount * seedsCount * 2);
+        this.hash = keys.playerKey(openingPlayer);
+        this.components = new ScoreComponents(geometry,
+            params.getEmptyPitThreshold(seedsCount));
 
         populateBoard();
     }
 
     /**
-     * Initializes the two dimensional {@link #pits} array with the desired
-     * number of initial seeds per pit. The array itself doesn't hold the seeds
-     * but rather objects of {@link Pit} in order to encapsulate all pit-related
-     * information like ownership, the number of seeds and whether the pit is a
-     * players store or not in one extra class.
+     * Initializes the {@link #seeds} array with the desired number of initial
+     * seeds per pit. Both stores start empty.
      */
     private void populateBoard() {
-        for (int i = 0; i < 2; i++) {
-            for (int j = 0; j < getPitsPerPlayer() + 1; j++) {
-                if (i == 0 && j == 0) {
-                    // Create the store for machine player.
-                    pits[i][j] = new Pit(Player.MACHINE, true);
-                } else if (i == 1 && j == getPitsPerPlayer()) {
-                    // Create the store for human player.
-                    pits[i][j] = new Pit(Player.HUMAN, true);
-                } else if (i == 0) {
-                    // Create the pits for machine player.
-                    pits[i][j] = new Pit(Player.MACHINE, getSeedsPerPit());
-                } else {
-                    // Create the pits for human player.
-                    pits[i][j] = new Pit(Player.HUMAN, getSeedsPerPit());
-                }
+        for (int pit = 1; pit < seeds.length; pit++) {
+            if (!isStore(pit)) {
+                setSeeds(pit, getSeedsPerPit());
             }
         }
     }
@@ -84,10 +131,10 @@ public class BoardImpl implements Board {
     @Override
     public Player next() {
         if (targetPitOfLastMove() > 0 && !isGameOver()) {
-            Pit lastPit = getPit(targetPitOfLastMove());
+            int lastPit = targetPitOfLastMove();
 
             // Check if the next user must miss a turn.
-            if (lastPit.isStore() && lastPit.getOwner() == getOpeningPlayer()) {
+            if (isStore(lastPit) && getOwner(lastPit) == getOpeningPlayer()) {
                 return getOpeningPlayer();
             } else {
                 return Player.getOpponent(getOpeningPlayer());
@@ -108,8 +155,8 @@ public class BoardImpl implements Board {
             throw new IllegalMoveException("Error! It's not your turn.");
         } else {
             if (pit <= (getPitsPerPlayer() + 1) * 2) {
-                if (getSeeds(pit) == 0 || getPit(pit).isStore()
-                    || getPit(pit).getOwner() != getOpeningPlayer()) {
+                if (getSeeds(pit) == 0 || isStore(pit)
+                    || getOwner(pit) != getOpeningPlayer()) {
                     throw new IllegalStateException();
                 }
             } else {
@@ -122,69 +169,188 @@ public class BoardImpl implements Board {
         BoardImpl board = this.clone();
         board.sowSeeds(pit);
 
-        board.openingPlayer = board.next();
+        board.setOpeningPlayer(board.next());
+
+        return board;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Board play(int pit) {
+        if (!isLegalMove(pit)) {
+            return null;
+        }
+
+        BoardImpl board = this.clone();
+        board.sowSeeds(pit);
+        board.setOpeningPlayer(board.next());
 
         return board;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isLegalMove(int pit) {
+        return pit > 0 && pit < seeds.length && seeds[pit] > 0
+            && !isStore(pit) && getOwner(pit) == openingPlayer
+            && !isGameOver();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int[] getLegalMoves() {
+        if (isGameOver() || openingPlayer == Player.NONE) {
+            return new int[0];
+        }
+
+        int firstPit = openingPlayer == Player.HUMAN ? 1
+            : getPitsPerPlayer() + 2;
+        int count = 0;
+        for (int pit = firstPit; pit < firstPit + getPitsPerPlayer(); pit++) {
+            if (seeds[pit] > 0) {
+                count++;
+            }
+        }
+
+        int[] moves = new int[count];
+        count = 0;
+        for (int pit = firstPit; pit < firstPit + getPitsPerPlayer(); pit++) {
+            if (seeds[pit] > 0) {
+                moves[count++] = pit;
+            }
+        }
+
+        return moves;
+    }
+
+    /**
+     * Executes a move of the player on turn in place, i.e., without creating a
+     * copy of this board. Everything needed to take the move back by
+     * {@link #undoMove(UndoRecord)} is written to {@code record}, so a search
+     * can explore moves without allocating a board per move.
+     *
+     * @param pit The number of a non-empty pit of the player on turn.
+     * @param record The record which receives the state before the move.
+     */
+    public void applyMove(int pit, UndoRecord record) {
+        record.record(pit, seeds[pit], openingPlayer, sourcePitOfLastMove,
+            targetPitOfLastMove, hash);
+        record.setCapturedSeeds(sowSeeds(pit));
+
+        setOpeningPlayer(next());
+    }
+
+    /**
+     * Takes back a move executed by {@link #applyMove(int, UndoRecord)}. Moves
+     * must be taken back in the reverse order of their execution.
+     *
+     * @param record The record written by the move to take back.
+     */
+    public void undoMove(UndoRecord record) {
+        int pit = record.getPit();
+        int capturedSeeds = record.getCapturedSeeds();
+        Player mover = record.getOpeningPlayer();
+
+        // Return the captured seeds before the sowing is reverted, since the
+        // target pit of the move held the last sown seed.
+        if (capturedSeeds > 0) {
+            int targetPit = targetPitOfLastMove;
+            int storeNum = getStoreNum(mover);
+            components.update(seeds, storeNum,
+                seeds[storeNum] - capturedSeeds - 1);
+            components.update(seeds, geometry.getOppositePit(targetPit),
+                capturedSeeds);
+            components.update(seeds, targetPit, 1);
+        }
+
+        // Collect the sown seeds again from the same pits.
+        int sownSeeds = record.getSownSeeds();
+        int cycleLength = geometry.getCycleLength();
+        int laps = sownSeeds / cycleLength;
+        int rest = sownSeeds % cycleLength;
+        int nextPit = pit;
+        for (int i = 0; i < cycleLength && (laps > 0 || i < rest); i++) {
+            nextPit = geometry.nextPit(mover, nextPit);
+            int sown = i < rest ? laps + 1 : laps;
+            components.update(seeds, nextPit, seeds[nextPit] - sown);
+        }
+        components.update(seeds, pit, sownSeeds);
+
+        // The hash of the restored state is known, so the changes above
+        // only updated the score components.
+        hash = record.getHash();
+        openingPlayer = mover;
+        sourcePitOfLastMove = record.getSourcePitOfLastMove();
+        targetPitOfLastMove = record.getTargetPitOfLastMove();
+    }
+
     /**
      * Takes a pit number as an input and sows all seeds in it counter-clockwise
      * to the following pits on this board with one new seed per pit. If the
      * last pit in this process is empty, the pits opposite seeds plus the new
+     * seed are captured and put into the store of the moving player.
      *
      * @param pit The pit number the player takes.
+     * @return The number of seeds captured from the opposing pit, {@code 0} if
+     * nothing could be captured.
      */
-    private void sowSeeds(int pit) {
-        int seeds = getSeeds(pit);
-        getPit(pit).setSeeds(0);
-
-        // Sow seeds counter-clockwise.
-        int pitCount = seeds + pit;
-        for (int i = pit + 1; i <= pitCount; i++) {
-            int normalizedPitNum = normalizePitNum(i);
-            Pit nextPit = getPit(normalizedPitNum);
-
-            // Update pit if it's not the opponents store.
-            if (nextPit.isStore() && nextPit.getOwner() != getOpeningPlayer()) {
-                pitCount += 1;
-            } else {
-                nextPit.addSeeds(1);
-            }
+    private int sowSeeds(int pit) {
+        int sowingSeeds = seeds[pit];
+        Player mover = getOpeningPlayer();
+        setSeeds(pit, 0);
+
+        // Sow seeds counter-clockwise, skipping the opponents store. Every
+        // pit of the cycle, including the source pit, gets one seed per full
+        // lap, and the pits up to the landing pit get one more.
+        int cycleLength = geometry.getCycleLength();
+        int laps = sowingSeeds / cycleLength;
+        int rest = sowingSeeds % cycleLength;
+        int nextPit = pit;
+        for (int i = 0; i < cycleLength && (laps > 0 || i < rest); i++) {
+            nextPit = geometry.nextPit(mover, nextPit);
+            int sown = i < rest ? laps + 1 : laps;
+            setSeeds(nextPit, seeds[nextPit] + sown);
         }
 
         sourcePitOfLastMove = pit;
-        targetPitOfLastMove = normalizePitNum(pitCount);
+        targetPitOfLastMove = geometry.getLandingPit(pit, sowingSeeds);
 
         // Check if catching is possible.
-        Pit targetPit = getPit(targetPitOfLastMove());
-        Pit opposingPit = getPit(getOpposingPitNum(targetPitOfLastMove()));
-        if (!targetPit.isStore() && targetPit.getOwner() == getOpeningPlayer()
-            && opposingPit.getSeeds() > 0 && targetPit.getSeeds() == 1) {
+        int targetPit = targetPitOfLastMove();
+        int opposingPit = geometry.getOppositePit(targetPit);
+        if (!isStore(targetPit) && getOwner(targetPit) == getOpeningPlayer()
+            && seeds[opposingPit] > 0 && seeds[targetPit] == 1) {
             // Update the seeds in the corresponding pits.
-            int holdingSeeds = opposingPit.getSeeds() + targetPit.getSeeds();
-            opposingPit.setSeeds(0);
-            targetPit.setSeeds(0);
+            int holdingSeeds = seeds[opposingPit] + seeds[targetPit];
+            setSeeds(opposingPit, 0);
+            setSeeds(targetPit, 0);
 
-            // Decide which player gets the captured seeds.
-            if (getOpeningPlayer() == Player.HUMAN) {
-                getPit(getPitsPerPlayer() + 1).addSeeds(holdingSeeds);
-            } else {
-                getPit((getPitsPerPlayer() + 1) * 2).addSeeds(holdingSeeds);
-            }
+            // The captured seeds go to the store of the moving player.
+            int storeNum = getStoreNum(getOpeningPlayer());
+            setSeeds(storeNum, seeds[storeNum] + holdingSeeds);
+
+            return holdingSeeds - 1;
         }
+
+        return 0;
     }
 
     /**
-     * Converts numbers bigger than the maximum of pits into a
-     * valid pit number bigger than zero.
+     * Calculates the pit in which the last seed lands if the player on turn
+     * sows the seeds of a given pit. The store of the opponent is skipped like
+     * in {@link #sowSeeds(int)}, but without walking the seeds one by one.
      *
-     * @param pit The pit number.
-     * @return The normalized pit number.
+     * @param pit The number of a non-empty pit of the player on turn.
+     * @return The number of the target pit.
      */
-    private int normalizePitNum(int pit) {
-        // Subtract one and add it again after the modulo
-        // operation in order to start at number one.
-        return (pit - 1) % ((getPitsPerPlayer() + 1) * 2) + 1;
+    public int getLandingPit(int pit) {
+        return geometry.getLandingPit(pit, seeds[pit]);
     }
 
     /**
@@ -194,15 +360,8 @@ public class BoardImpl implements Board {
      * calculated.
      * @return The opposing pit number.
      */
-    private int getOpposingPitNum(int pit) {
-        int maxPitNum = (getPitsPerPlayer() + 1) * 2;
-        if (pit == maxPitNum) {
-            return maxPitNum / 2;
-        } else if (pit == maxPitNum / 2) {
-            return maxPitNum;
-        } else {
-            return maxPitNum - pit;
-        }
+    public int getOpposingPitNum(int pit) {
+        return geometry.getOppositePit(pit);
     }
 
     /**
@@ -210,56 +369,86 @@ public class BoardImpl implements Board {
      */
     @Override
     public Board machineMove() {
-        Node root = constructTree(0);
-        root.updateScore();
-        return root.getMaxChild().getBoard();
+        if (table == null) {
+            table = searchMode.createTable(ScoreTable.DEFAULT_SIZE_MB);
+        }
+
+        // Search on a single copy of this board which is changed in place.
+        BoardImpl board = this.clone();
+        int bestPit = book != null ? book.lookup(board) : 0;
+        boolean cached = cache != null && timeBudget == 0;
+        if (bestPit == 0 && cached) {
+            bestPit = cache.get(board, searchMode, level, tablebase);
+
+            // An entry read from a damaged file must not lead to an illegal
+            // move, so such a hit is searched again.
+            if (bestPit != 0 && !board.isLegalMove(bestPit)) {
+                bestPit = 0;
+            }
+        }
+        if (bestPit == 0) {
+            Search search = timeBudget > 0
+                ? new IterativeDeepening(timeBudget, table)
+                : searchMode.create(level, threads, table);
+            search.setTablebase(tablebase);
+            bestPit = search.bestMove(board);
+            board.searchStats = search.getStats();
+            SearchMonitor.getInstance().record(board.searchStats);
+            if (cached) {
+                cache.put(board, searchMode, level, tablebase, bestPit);
+            }
+        }
+
+        board.applyMove(bestPit, new UndoRecord());
+        return board;
     }
 
     /**
-     * Recursively construct the tree.
+     * {@inheritDoc}
      *
-     * @param depth The current depth of the tree in this recursion.
-     * @return The root node of the tree.
-     */
-    private Node constructTree(int depth) {
-        if (depth == level || isGameOver()) {
-            // Create a leave.
-            return new Node(this.clone(), null,
-                this.calcScore(depth), depth);
-        } else {
-            // Create a new sub-tree.
-            Node root = new Node(this.clone(), this.calcScore(depth), depth);
-
-            List<Board> possibleStates =
-                getPossibleGameStates(getOpeningPlayer());
-            for (Board board : possibleStates) {
-                Node child = ((BoardImpl) board).constructTree(depth + 1);
-                root.addChild(child);
-            }
-            return root;
+     * The searches always play for the machine, so the human's moves are
+     * searched on the mirrored board.
+     */
+    @Override
+    public Board searchMove() {
+        if (getOpeningPlayer() != Player.HUMAN) {
+            return machineMove();
         }
+
+        return ((BoardImpl) mirror().machineMove()).mirror();
     }
 
     /**
-     * Generates a list of all possible game states for a given player which can
-     * be reached within one move on the current board.
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchStats getSearchStats() {
+        return searchStats;
+    }
+
+    /**
+     * Creates a copy of this board on which the players have swapped their
+     * rows and stores, so that the machine is on turn instead of the human
+     * and vice versa. The copy shares the settings and the transposition
+     * table of this board.
      *
-     * @param player The player for which to generate game states.
-     * @return A list of possible game states.
-     */
-    private List<Board> getPossibleGameStates(Player player) {
-        List<Board> gameStates = new ArrayList<>();
-        for (int pitNum : getSourcePits(player)) {
-            if (getPit(pitNum).getSeeds() != 0) {
-                BoardImpl state = this.clone();
-                state.sowSeeds(pitNum);
-
-                state.openingPlayer = state.next();
-                gameStates.add(state);
-            }
+     * @return The mirrored board.
+     */
+    public BoardImpl mirror() {
+        BoardImpl board = this.clone();
+        for (int pit = 1; pit < seeds.length; pit++) {
+            board.setSeeds(pit, seeds[geometry.getMirroredPit(pit)]);
         }
+        board.setOpeningPlayer(Player.getOpponent(openingPlayer));
+        if (sourcePitOfLastMove > 0) {
+            board.sourcePitOfLastMove =
+                geometry.getMirroredPit(sourcePitOfLastMove);
+            board.targetPitOfLastMove =
+                geometry.getMirroredPit(targetPitOfLastMove);
+        }
+        board.searchStats = searchStats;
 
-        return gameStates;
+        return board;
     }
 
     /**
@@ -276,48 +465,107 @@ public class BoardImpl implements Board {
      * <li>Score V, which evaluates if a move leads to a victory
      * immediately.</li>
      * </ul>
+     * The weights of the scores and the threshold of score P are those of
+     * the {@link EvalParams} of this board.
      *
      * @param depth The boards depth in the evaluation tree.
      * @return The calculated score.
      */
-    private double calcScore(int depth) {
-        // Evaluate seeds in the stores.
-        int machineStore = (getPitsPerPlayer() + 1) * 2;
-        int humanStore = getPitsPerPlayer() + 1;
-        double scoreS = getSeeds(machineStore) - 1.5 * getSeeds(humanStore);
-
-        // Evaluate number of opposing seeds which can be captured in this move.
-        // the ones the machine can catch
-        double catchableHumanSeeds = getCatchableSeeds(Player.MACHINE);
+    public double calcScore(int depth) {
+        // Evaluate if a move leads to a victory immediately.
+        if (isGameOver()) {
+            Player winner = getWinner();
+            if (winner != Player.NONE) {
+                return params.getVictoryScore(winner, depth);
+            }
+        }
 
-        // the ones the human can catch
-        double catchableMachineSeeds = getCatchableSeeds(Player.HUMAN);
-        double scoreC = catchableHumanSeeds - 1.5 * catchableMachineSeeds;
+        // Score S, C and P with the features of the human negated.
+        double score = 0;
+        for (int feature = 0; feature < EvalParams.FEATURES; feature++) {
+            score += params.getWeight(feature) * getFeature(feature);
+        }
 
-        // Evaluate the number of empty pits whose opposing opposite
-        // pits contain at least twice the number of seeds as initial
-        // per pit at the game start.
-        double emptyHumanPits = getEmptyPits(Player.HUMAN);
-        double emptyMachinePits = getEmptyPits(Player.MACHINE);
-        double scoreP = emptyMachinePits - 1.5 * emptyHumanPits;
+        return score;
+    }
 
-        // Evaluate if a move leads to a victory immediately.
-        double scoreV;
-        if (!isGameOver()) {
-            scoreV = 0;
-        } else {
-            if (getWinner() == Player.NONE) {
-                scoreV = 0;
-            } else {
-                if (getWinner() == Player.HUMAN) {
-                    return -1.5 * (500.0 / depth);
-                } else {
-                    return 500.0 / depth;
-                }
+    /**
+     * Calculates the local score of {@link #calcScore(int)} multiplied by
+     * {@link #SCORE_SCALE} in integer arithmetic, with the weights of the
+     * parameters scaled and rounded. For the default parameters and up to
+     * depth 8 it is exactly the scaled score, beyond that the victory scores
+     * are rounded to the nearest integer.
+     *
+     * @param depth The boards depth in the evaluation tree.
+     * @return The scaled score.
+     */
+    public long calcScaledScore(int depth) {
+        if (isGameOver()) {
+            Player winner = getWinner();
+            if (winner != Player.NONE) {
+                return params.getScaledVictoryScore(winner, depth);
             }
         }
 
-        return 3 * scoreS + scoreC + scoreP + scoreV;
+        long score = 0;
+        for (int feature = 0; feature < EvalParams.FEATURES; feature++) {
+            score += params.getScaledWeight(feature) * getFeature(feature);
+        }
+
+        return score;
+    }
+
+    /**
+     * Gets the features of the local score of this board, see
+     * {@link EvalParams}, e.g., to fit the weights to the outcomes of games.
+     *
+     * @return The features, indexed like {@link EvalParams#FEATURE_NAMES}.
+     */
+    public int[] getFeatures() {
+        int[] features = new int[EvalParams.FEATURES];
+        for (int feature = 0; feature < EvalParams.FEATURES; feature++) {
+            features[feature] = getFeature(feature);
+        }
+
+        return features;
+    }
+
+    /**
+     * Gets a single feature of the local score.
+     *
+     * @param feature The index of the feature, see {@link EvalParams}.
+     * @return The value of the feature, negated for the human.
+     */
+    private int getFeature(int feature) {
+        switch (feature) {
+        case EvalParams.MACHINE_STORE:
+            return seeds[getStoreNum(Player.MACHINE)];
+        case EvalParams.HUMAN_STORE:
+            return -seeds[getStoreNum(Player.HUMAN)];
+        case EvalParams.MACHINE_CATCHABLE:
+            return getCatchableSeeds(Player.MACHINE);
+        case EvalParams.HUMAN_CATCHABLE:
+            return -getCatchableSeeds(Player.HUMAN);
+        case EvalParams.MACHINE_EMPTY_PITS:
+            return getEmptyPits(Player.MACHINE);
+        case EvalParams.HUMAN_EMPTY_PITS:
+            return -getEmptyPits(Player.HUMAN);
+        default:
+            throw new IllegalArgumentException(
+                "Error! Unknown feature " + feature);
+        }
+    }
+
+    /**
+     * Gets the scaled score of {@link #calcScaledScore(int)} for a board on
+     * which the game is over.
+     *
+     * @param winner The winner of the game.
+     * @param depth The boards depth in the evaluation tree.
+     * @return The scaled victory score of the winner, {@code 0} for a tie.
+     */
+    public long calcScaledVictoryScore(Player winner, int depth) {
+        return params.getScaledVictoryScore(winner, depth);
     }
 
     /**
@@ -329,95 +577,104 @@ public class BoardImpl implements Board {
      * @return The number of empty pits.
      */
     private int getEmptyPits(Player player) {
-        int emptyPits = 0;
-        for (int pitNum : getSourcePits(player)) {
-            if (getPit(pitNum).getSeeds() == 0
-                && getPit(getOpposingPitNum(pitNum)).getSeeds()
-                >= 2 * getSeedsPerPit()) {
-                emptyPits += 1;
-            }
-        }
-
-        return emptyPits;
+        return components.getEmptyPits(player);
     }
 
     /**
-     * Loops through all possible target pits of the player in order to find
-     * catchable seeds of the opponent.
+     * Gets the seeds of the opponent which can be caught by the player: each
+     * distinct empty pit of the player which one of the player's non-empty
+     * pits reaches, counting without skipping a store, adds the seeds of its
+     * opposite pit.
      *
      * @param player The player which to look for.
      * @return All catchable seeds.
      */
     private int getCatchableSeeds(Player player) {
-        Set<Integer> targetPits = getPossibleTargetPits(player);
-        int catchableSeeds = 0;
-
-        // Loops through all possible target pits of the human in order to find
-        // catchable seeds of the machine.
-        for (int target : targetPits) {
-            if (getPit(target).getSeeds() == 0
-                && getPit(target).getOwner() == player
-                && !getPit(target).isStore()) {
-                catchableSeeds += getPit(getOpposingPitNum(target)).getSeeds();
-            }
-        }
-
-        return catchableSeeds;
+        return components.getCatchableSeeds(player);
     }
 
     /**
-     * Gets a list of game pit numbers a given player owns (no stores).
-     *
-     * @param player The player whose game pit numbers should be returned.
-     * @return A list of game pits for a given player.
+     * {@inheritDoc}
      */
-    private List<Integer> getSourcePits(Player player) {
-        List<Integer> playerPits = new ArrayList<>();
-        int firstPitNum = 1;
-        int lastPitNum = getPitsPerPlayer();
-        if (player == Player.MACHINE) {
-            firstPitNum = getPitsPerPlayer() + 2;
-            lastPitNum = getPitsPerPlayer() * 2 + 1;
+    @Override
+    public void setLevel(int level) {
+        if (level > 0) {
+            this.level = level;
         }
+    }
 
-        for (int i = firstPitNum; i <= lastPitNum; i++) {
-            playerPits.add(i);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setSearchMode(SearchMode searchMode) {
+        if (searchMode != this.searchMode) {
+            // The table of a sequential mode must not be used by several
+            // threads.
+            table = null;
         }
+        this.searchMode = searchMode;
+    }
 
-        return playerPits;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTablebase(EndgameTablebase tablebase) {
+        this.tablebase = tablebase;
     }
 
     /**
-     * Returns a set of target pits which can be reached in this move. Due to
-     * the property of a set not allowing duplicates the target pits will occur
-     * only once even if they can be reached by several different source pits.
-     * This ensures that pits won't be counted twice.
-     *
-     * @param player The player which can capture.
-     * @return A set of pits
-     */
-    private Set<Integer> getPossibleTargetPits(Player player) {
-        Set<Integer> targetPitNums = new HashSet<>();
-
-        for (int pitNum : getSourcePits(player)) {
-            Pit sourcePit = getPit(pitNum);
-            if (sourcePit.getSeeds() != 0) {
-                int targetPitNum = normalizePitNum(
-                    pitNum + sourcePit.getSeeds());
-                targetPitNums.add(targetPitNum);
+     * {@inheritDoc}
+     */
+    @Override
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setSearchCache(SearchCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setEvalParams(EvalParams params) {
+        int oldThreshold = this.params.getEmptyPitThreshold(getSeedsPerPit());
+        this.params = params;
+        if (params.getEmptyPitThreshold(getSeedsPerPit()) != oldThreshold) {
+            // Count the empty pits again by refilling the pits.
+            int[] oldSeeds = seeds;
+            seeds = new int[oldSeeds.length];
+            components = new ScoreComponents(geometry,
+                params.getEmptyPitThreshold(getSeedsPerPit()));
+            for (int pit = 1; pit < seeds.length; pit++) {
+                components.update(seeds, pit, oldSeeds[pit]);
             }
         }
+    }
 
-        return targetPitNums;
+    /**
+     * Gets the weights of the local score.
+     *
+     * @return The evaluation parameters.
+     */
+    public EvalParams getEvalParams() {
+        return params;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void setLevel(int level) {
-        if (level > 0) {
-            this.level = level;
+    public void setThreads(int threads) {
+        if (threads > 0) {
+            this.threads = threads;
         }
     }
 
@@ -425,26 +682,53 @@ public class BoardImpl implements Board {
      * {@inheritDoc}
      */
     @Override
-    public boolean isGameOver() {
-        boolean upperRowPitsEmpty = true;
-        boolean lowerRowPitsEmpty = true;
-
-        for (int i = 0; i < 2; i++) {
-            for (int j = 0; j <= getPitsPerPlayer(); j++) {
-                // Check if a players row only contains empty pits.
-                if (!pits[i][j].isStore() && pits[i][j].getSeeds() > 0) {
-                    if (i == 0) {
-                        upperRowPitsEmpty = false;
-                    } else {
-                        lowerRowPitsEmpty = false;
-                    }
-                    break; // Break at the first pit with more than one seed.
-                }
-            }
+    public void setTimeBudget(long millis) {
+        if (millis >= 0) {
+            this.timeBudget = millis;
         }
+    }
+
+    /**
+     * Gets the transposition table of the machine's searches. Its statistics
+     * cover all searches of this game so far.
+     *
+     * @return The transposition table, {@code null} if the machine has not
+     *         moved yet and none has been set.
+     */
+    public ScoreTable getTranspositionTable() {
+        return table;
+    }
 
+    /**
+     * Sets the transposition table of the machine's searches, e.g., to change
+     * its memory footprint. It is shared with all boards created from this
+     * one afterwards.
+     *
+     * @param table The transposition table, which must not be shared with
+     *        boards of a different game and must be thread-safe for parallel
+     *        search modes.
+     */
+    public void setTranspositionTable(ScoreTable table) {
+        this.table = table;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isGameOver() {
         // The game ends if either the players or the opponents pits are empty.
-        return upperRowPitsEmpty || lowerRowPitsEmpty;
+        return rowIsEmpty(Player.HUMAN) || rowIsEmpty(Player.MACHINE);
+    }
+
+    /**
+     * Checks if all pits of a player, except her store, are empty.
+     *
+     * @param player The player whose row should be checked.
+     * @return {@code true} if and only if the player has no seeds left to sow.
+     */
+    private boolean rowIsEmpty(Player player) {
+        return components.getRowSeeds(player) == 0;
     }
 
     /**
@@ -463,21 +747,66 @@ public class BoardImpl implements Board {
     }
 
     /**
-     * Returns the pit object of a given pit number.
+     * Changes the number of seeds in a pit and updates the hash accordingly.
      *
      * @param pit The pit number.
-     * @return The pit object on number {@code pit}.
+     * @param value The new number of seeds in the pit.
+     */
+    private void setSeeds(int pit, int value) {
+        hash ^= keys.seedKey(pit, seeds[pit]) ^ keys.seedKey(pit, value);
+        components.update(seeds, pit, value);
+    }
+
+    /**
+     * Changes the player on turn and updates the hash accordingly.
+     *
+     * @param player The new player on turn.
      */
-    private Pit getPit(int pit) {
-        int pitsPerRow = getPitsPerPlayer() + 1;
+    private void setOpeningPlayer(Player player) {
+        hash ^= keys.playerKey(openingPlayer) ^ keys.playerKey(player);
+        openingPlayer = player;
+    }
 
-        if (pit > pitsPerRow) {
-            // One of the upper pits.
-            return pits[0][(pit - pitsPerRow * 2) * (-1)];
-        } else {
-            // One of the lower pits.
-            return pits[1][pit - 1];
-        }
+    /**
+     * Gets the Zobrist hash of this board, which covers the seeds of all pits
+     * and the player on turn. Equal boards have equal hashes, even if they
+     * have been reached by different moves.
+     *
+     * @return The hash of this board.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Gets the owner of a given pit number. The human owns the lower row
+     * including her store, the machine the upper one.
+     *
+     * @param pit The pit number.
+     * @return The player the pit on number {@code pit} belongs to.
+     */
+    private Player getOwner(int pit) {
+        return geometry.getOwner(pit);
+    }
+
+    /**
+     * Checks if a given pit number belongs to one of the players stores.
+     *
+     * @param pit The pit number.
+     * @return {@code true} if the pit on number {@code pit} is a store.
+     */
+    private boolean isStore(int pit) {
+        return geometry.isStore(pit);
+    }
+
+    /**
+     * Gets the pit number of a players store.
+     *
+     * @param player The player whose store number should be returned.
+     * @return The pit number of the store.
+     */
+    private int getStoreNum(Player player) {
+        return geometry.getStore(player);
     }
 
     /**
@@ -485,7 +814,7 @@ public class BoardImpl implements Board {
      */
     @Override
     public int getSeeds(int pit) {
-        return getPit(pit).getSeeds();
+        return seeds[pit];
     }
 
     /**
@@ -504,6 +833,29 @@ public class BoardImpl implements Board {
         return targetPitOfLastMove;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean lastMoveGrantsExtraTurn() {
+        return sourcePitOfLastMove > 0 && !isGameOver()
+            && isStore(targetPitOfLastMove)
+            && getOwner(targetPitOfLastMove) == getOwner(sourcePitOfLastMove);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * A capture empties the pit of the last seed, which otherwise holds at
+     * least this seed, so no extra state is needed to tell.
+     */
+    @Override
+    public boolean lastMoveCaptured() {
+        return sourcePitOfLastMove > 0 && !isStore(targetPitOfLastMove)
+            && getOwner(targetPitOfLastMove) == getOwner(sourcePitOfLastMove)
+            && seeds[targetPitOfLastMove] == 0;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -525,18 +877,14 @@ public class BoardImpl implements Board {
      */
     @Override
     public int getSeedsOfPlayer(Player player) {
-        int playerRow = 0;
-        if (player == Player.HUMAN) {
-            playerRow = 1;
+        // Sum up the seeds of each pit including the store.
+        int playerSeeds = 0;
+        int storeNum = getStoreNum(player);
+        for (int pit = storeNum - getPitsPerPlayer(); pit <= storeNum; pit++) {
+            playerSeeds += seeds[pit];
         }
 
-        List<Integer> seeds = new ArrayList<>();
-        for (Pit pit : pits[playerRow]) {
-            seeds.add(pit.getSeeds());
-        }
-
-        // Sum up the list of seeds of each pit.
-        return seeds.stream().reduce(0, (a, b) -> a + b);
+        return playerSeeds;
     }
 
     /**
@@ -544,17 +892,11 @@ public class BoardImpl implements Board {
      */
     @Override
     public BoardImpl clone() {
-        Pit[][] clonedPits = new Pit[2][getPitsPerPlayer() + 1];
-
-        for (int i = 0; i < 2; i++) {
-            for (int j = 0; j < getPitsPerPlayer() + 1; j++) {
-                clonedPits[i][j] = pits[i][j].clone();
-            }
-        }
-
         try {
             BoardImpl clonedBoard = (BoardImpl) super.clone();
-            clonedBoard.pits = clonedPits;
+            clonedBoard.seeds = seeds.clone();
+            clonedBoard.components = components.copy();
+            clonedBoard.searchStats = null;
 
             return clonedBoard;
         } catch (CloneNotSupportedException e) {
@@ -569,34 +911,27 @@ public class BoardImpl implements Board {
     @Override
     public String toString() {
         int maxDecimalNum = 1;
-        for (int i = 0; i < pits.length; i++) {
-            for (int j = 0; j < pits[i].length; j++) {
-                if (pits[i][j].toString().length() > maxDecimalNum) {
-                    maxDecimalNum = pits[i][j].toString().length();
-                }
+        for (int pit = 1; pit < seeds.length; pit++) {
+            if (String.valueOf(seeds[pit]).length() > maxDecimalNum) {
+                maxDecimalNum = String.valueOf(seeds[pit]).length();
             }
         }
         StringBuilder upperRow = new StringBuilder();
         StringBuilder lowerRow = new StringBuilder();
-        for (int i = 0; i < pits.length; i++) {
-            for (int j = 0; j < pits[i].length; j++) {
-                String pit = String.format("%" + maxDecimalNum + "d",
-                    pits[i][j].getSeeds());
-                if (i == 0) {
-                    upperRow.append(pit);
-                    if (j < getPitsPerPlayer()) {
-                        upperRow.append(" ");
-                    }
-                } else {
-                    lowerRow.append(pit);
-                    if (j < getPitsPerPlayer()) {
-                        lowerRow.append(" ");
-                    }
-                }
+        int machineStore = getStoreNum(Player.MACHINE);
+        for (int j = 0; j <= getPitsPerPlayer(); j++) {
+            // The upper row runs from the machine's store backwards.
+            upperRow.append(String.format("%" + maxDecimalNum + "d",
+                seeds[machineStore - j]));
+            lowerRow.append(String.format("%" + maxDecimalNum + "d",
+                seeds[j + 1]));
+            if (j < getPitsPerPlayer()) {
+                upperRow.append(" ");
+                lowerRow.append(" ");
             }
         }
-        int lowerRowMargin = pits[0][0].toString().length()
-            + pits[1][0].toString().length();
+        int lowerRowMargin = String.valueOf(seeds[machineStore]).length()
+            + String.valueOf(seeds[1]).length();
         for (int i = 0; i < lowerRowMargin; i++) {
             lowerRow.insert(0, " ");
         }
@@ -0,0 +1,390 @@
+package kalah.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * The weights of the local score of a board, see
+ * {@link BoardImpl#calcScore(int)}. The local score is the dot product of the
+ * weights and the features of the board, see {@link BoardImpl#getFeatures()},
+ * unless the game is over and one player has won. The features of the human
+ * are negated, so all default weights are positive. Instances are immutable
+ * and shared by all boards of a game.
+ *
+ * The default parameters weigh the stores three times as much as the other
+ * features and the features of the human 1.5 times as much as those of the
+ * machine. They can be stored in and read from a properties file, whose keys
+ * are the names of {@link #FEATURE_NAMES}, {@code emptyPitThreshold},
+ * {@code victoryScore} and {@code humanVictoryFactor}.
+ */
+public final class EvalParams {
+
+    /**
+     * The index of the seeds in the machine's store.
+     */
+    public static final int MACHINE_STORE = 0;
+
+    /**
+     * The index of the negated seeds in the human's store.
+     */
+    public static final int HUMAN_STORE = 1;
+
+    /**
+     * The index of the seeds of the human the machine can catch.
+     */
+    public static final int MACHINE_CATCHABLE = 2;
+
+    /**
+     * The index of the negated seeds of the machine the human can catch.
+     */
+    public static final int HUMAN_CATCHABLE = 3;
+
+    /**
+     * The index of the empty pits of the machine opposite to many seeds.
+     */
+    public static final int MACHINE_EMPTY_PITS = 4;
+
+    /**
+     * The index of the negated empty pits of the human opposite to many
+     * seeds.
+     */
+    public static final int HUMAN_EMPTY_PITS = 5;
+
+    /**
+     * The number of features.
+     */
+    public static final int FEATURES = 6;
+
+    /**
+     * The names of the features by index, which are the keys of the weights
+     * in a properties file.
+     */
+    public static final String[] FEATURE_NAMES = {"machineStore",
+        "humanStore", "machineCatchable", "humanCatchable", "machineEmptyPits",
+        "humanEmptyPits"};
+
+    /**
+     * The original weights of the game.
+     */
+    public static final EvalParams DEFAULT = new EvalParams(
+        new double[] {3, 4.5, 1, 1.5, 1, 1.5}, 2, 500, 1.5);
+
+    /**
+     * The largest absolute weight of a feature.
+     */
+    public static final double MAX_WEIGHT = 1e6;
+
+    /**
+     * The largest score of a victory of either player at depth 1. Together
+     * with {@link #MAX_WEIGHT}, it keeps every sum of scaled scores along a
+     * path of the search far below the bounds of the alpha-beta search, for
+     * boards of up to a million seeds.
+     */
+    public static final double MAX_VICTORY_SCORE = 1e9;
+
+    /**
+     * The number of depths with precomputed scaled victory scores.
+     */
+    private static final int VICTORY_TABLE_SIZE = 256;
+
+    private final double[] weights;
+    private final double emptyPitThreshold;
+    private final double victoryScore;
+    private final double humanVictoryFactor;
+
+    /**
+     * The weights multiplied by {@link BoardImpl#SCORE_SCALE} and rounded.
+     */
+    private final long[] scaledWeights;
+
+    /**
+     * The scaled victory scores by depth, see
+     * {@link #getScaledVictoryScore(Player, int)}. Index 0 is unused.
+     */
+    private final long[] machineVictoryScores;
+    private final long[] humanVictoryScores;
+
+    /**
+     * Instantiates a new {@link EvalParams} object.
+     *
+     * @param weights The weights of the features, indexed like
+     *        {@link #FEATURE_NAMES}.
+     * @param emptyPitThreshold The seeds an opposite pit must hold at least
+     *        for an empty pit to count, as a multiple of the initial seeds per
+     *        pit.
+     * @param victoryScore The score of a victory of the machine at depth 1,
+     *        which is divided by the depth.
+     * @param humanVictoryFactor The factor by which a victory of the human
+     *        weighs more than one of the machine.
+     * @throws IllegalArgumentException If the number of weights is wrong, a
+     *         weight is not finite or larger than {@link #MAX_WEIGHT}, or
+     *         another parameter is not finite or negative, or a victory
+     *         scores more than {@link #MAX_VICTORY_SCORE}.
+     */
+    public EvalParams(double[] weights, double emptyPitThreshold,
+        double victoryScore, double humanVictoryFactor) {
+        if (weights.length != FEATURES) {
+            throw new IllegalArgumentException(
+                "Error! Expected " + FEATURES + " weights.");
+        }
+        for (double weight : weights) {
+            if (!Double.isFinite(weight) || Math.abs(weight) > MAX_WEIGHT) {
+                throw new IllegalArgumentException(
+                    "Error! Weights must be finite and at most " + MAX_WEIGHT
+                    + ".");
+            }
+        }
+        if (!isNonNegative(emptyPitThreshold) || !isNonNegative(victoryScore)
+            || !isNonNegative(humanVictoryFactor)) {
+            throw new IllegalArgumentException("Error! The threshold and "
+                + "victory scores must be finite and not negative.");
+        } else if (victoryScore * Math.max(1, humanVictoryFactor)
+            > MAX_VICTORY_SCORE) {
+            throw new IllegalArgumentException(
+                "Error! Victories must score at most " + MAX_VICTORY_SCORE
+                + ".");
+        }
+        this.weights = weights.clone();
+        this.emptyPitThreshold = emptyPitThreshold;
+        this.victoryScore = victoryScore;
+        this.humanVictoryFactor = humanVictoryFactor;
+
+        scaledWeights = new long[FEATURES];
+        for (int i = 0; i < FEATURES; i++) {
+            scaledWeights[i] = Math.round(weights[i] * BoardImpl.SCORE_SCALE);
+        }
+        machineVictoryScores = new long[VICTORY_TABLE_SIZE];
+        humanVictoryScores = new long[VICTORY_TABLE_SIZE];
+        for (int depth = 1; depth < VICTORY_TABLE_SIZE; depth++) {
+            machineVictoryScores[depth] = machineVictoryScore(depth);
+            humanVictoryScores[depth] = humanVictoryScore(depth);
+        }
+    }
+
+    /**
+     * Checks if a parameter is a finite number and not negative.
+     *
+     * @param value The parameter.
+     * @return {@code true} if the parameter is valid.
+     */
+    private static boolean isNonNegative(double value) {
+        return Double.isFinite(value) && value >= 0;
+    }
+
+    /**
+     * Reads parameters from a properties file. Missing keys keep their
+     * default values.
+     *
+     * @param file The path of the file.
+     * @return The parameters.
+     * @throws IOException If the file cannot be read or holds an invalid
+     *         number.
+     */
+    public static EvalParams read(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+
+        try {
+            double[] weights = new double[FEATURES];
+            for (int i = 0; i < FEATURES; i++) {
+                weights[i] = get(properties, FEATURE_NAMES[i],
+                    DEFAULT.weights[i]);
+            }
+            return new EvalParams(weights,
+                get(properties, "emptyPitThreshold",
+                    DEFAULT.emptyPitThreshold),
+                get(properties, "victoryScore", DEFAULT.victoryScore),
+                get(properties, "humanVictoryFactor",
+                    DEFAULT.humanVictoryFactor));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid evaluation parameters in " + file
+                + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets a number of a properties file.
+     *
+     * @param properties The properties.
+     * @param key The key of the number.
+     * @param defaultValue The value if the key is missing.
+     * @return The number.
+     * @throws NumberFormatException If the value is no number.
+     */
+    private static double get(Properties properties, String key,
+        double defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Double.parseDouble(value.trim());
+    }
+
+    /**
+     * Writes these parameters to a properties file.
+     *
+     * @param file The path of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < FEATURES; i++) {
+                writer.write(FEATURE_NAMES[i] + "=" + weights[i] + "\n");
+            }
+            writer.write("emptyPitThreshold=" + emptyPitThreshold + "\n");
+            writer.write("victoryScore=" + victoryScore + "\n");
+            writer.write("humanVictoryFactor=" + humanVictoryFactor + "\n");
+        }
+    }
+
+    /**
+     * Creates parameters with other weights of the features but the same
+     * threshold and victory scores.
+     *
+     * @param newWeights The weights, indexed like {@link #FEATURE_NAMES}.
+     * @return The new parameters.
+     */
+    public EvalParams withWeights(double[] newWeights) {
+        return new EvalParams(newWeights, emptyPitThreshold, victoryScore,
+            humanVictoryFactor);
+    }
+
+    /**
+     * Gets the weights of the features.
+     *
+     * @return A copy of the weights, indexed like {@link #FEATURE_NAMES}.
+     */
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * Gets the weight of a feature.
+     *
+     * @param feature The index of the feature.
+     * @return The weight.
+     */
+    double getWeight(int feature) {
+        return weights[feature];
+    }
+
+    /**
+     * Gets the weight of a feature multiplied by
+     * {@link BoardImpl#SCORE_SCALE}.
+     *
+     * @param feature The index of the feature.
+     * @return The rounded scaled weight.
+     */
+    long getScaledWeight(int feature) {
+        return scaledWeights[feature];
+    }
+
+    /**
+     * Calculates the minimum number of seeds in an opposite pit for an empty
+     * pit to count.
+     *
+     * @param seedsPerPit The initial number of seeds per pit.
+     * @return The threshold in seeds.
+     */
+    int getEmptyPitThreshold(int seedsPerPit) {
+        return (int) Math.ceil(emptyPitThreshold * seedsPerPit);
+    }
+
+    /**
+     * Gets the local score of a victory.
+     *
+     * @param winner The winner, either the machine or the human.
+     * @param depth The boards depth in the evaluation tree.
+     * @return The score, which is negative for the human.
+     */
+    double getVictoryScore(Player winner, int depth) {
+        if (winner == Player.HUMAN) {
+            return -humanVictoryFactor * (victoryScore / depth);
+        }
+        return victoryScore / depth;
+    }
+
+    /**
+     * Gets the local score of a victory multiplied by
+     * {@link BoardImpl#SCORE_SCALE}.
+     *
+     * @param winner The winner of the game.
+     * @param depth The boards depth in the evaluation tree.
+     * @return The scaled score, rounded to the nearest integer, {@code 0} for
+     *         a tie.
+     */
+    long getScaledVictoryScore(Player winner, int depth) {
+        if (winner == Player.HUMAN) {
+            return depth < VICTORY_TABLE_SIZE ? humanVictoryScores[depth]
+                : humanVictoryScore(depth);
+        } else if (winner == Player.MACHINE) {
+            return depth < VICTORY_TABLE_SIZE ? machineVictoryScores[depth]
+                : machineVictoryScore(depth);
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Calculates the scaled victory score of the machine.
+     *
+     * @param depth The boards depth in the evaluation tree.
+     * @return The scaled score, rounded to the nearest integer.
+     */
+    private long machineVictoryScore(int depth) {
+        return Math.round(victoryScore * BoardImpl.SCORE_SCALE / depth);
+    }
+
+    /**
+     * Calculates the scaled victory score of the human, which is negative.
+     *
+     * @param depth The boards depth in the evaluation tree.
+     * @return The scaled score, rounded to the nearest integer.
+     */
+    private long humanVictoryScore(int depth) {
+        return -Math.round(
+            humanVictoryFactor * victoryScore * BoardImpl.SCORE_SCALE / depth);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Parameters are equal if all weights, the threshold and the victory
+     * scores are equal, i.e., if they evaluate every board the same.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof EvalParams)) {
+            return false;
+        }
+        EvalParams params = (EvalParams) other;
+        return Arrays.equals(weights, params.weights)
+            && Double.compare(emptyPitThreshold, params.emptyPitThreshold) == 0
+            && Double.compare(victoryScore, params.victoryScore) == 0
+            && Double.compare(humanVictoryFactor, params.humanVictoryFactor)
+                == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(new double[] {Arrays.hashCode(weights),
+            emptyPitThreshold, victoryScore, humanVictoryFactor});
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return Arrays.toString(weights) + ", threshold " + emptyPitThreshold
+            + ", victory " + victoryScore + " x " + humanVictoryFactor;
+    }
+
+}
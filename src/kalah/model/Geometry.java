@@ -0,0 +1,289 @@
+package kalah.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lookup tables for everything which only depends on the number of pits per
+ * player, so that sowing and evaluating a board need neither modulo
+ * operations nor branches on the pit numbers. The tables are immutable and
+ * shared by all boards with the same number of pits per player.
+ *
+ * The pits a player sows into form a cycle of {@code 2 * pitsPerPlayer + 1}
+ * pits, which skips the store of the opponent. Sowing more seeds than the
+ * cycle is long just adds full laps, so the landing pit of a move only
+ * depends on the number of seeds modulo the cycle length.
+ *
+ * The tables of landing and aimed pits grow quadratically with the number of
+ * pits, so they are only built for boards with up to {@value #MAX_TABLE_PITS}
+ * pits per player, whose geometries are shared. Larger boards calculate these
+ * pits arithmetically and get a geometry of their own, which is collected
+ * with the boards using it.
+ */
+final class Geometry {
+
+    /**
+     * The maximum number of pits per player for which the landing and aimed
+     * pits are precomputed and the geometry is shared.
+     */
+    static final int MAX_TABLE_PITS = 64;
+
+    private static final Map<Integer, Geometry> CACHE =
+        new ConcurrentHashMap<>();
+
+    private final int pitsPerPlayer;
+    private final int pitCount;
+    private final int cycleLength;
+    private final int[] humanNextPits;
+    private final int[] machineNextPits;
+    private final int[] oppositePits;
+    private final Player[] owners;
+    private final boolean[] stores;
+
+    /**
+     * The landing pit of sowing a pit, indexed by
+     * {@code pit * (cycleLength + 1) + seeds} for up to one full lap,
+     * {@code null} for large boards.
+     */
+    private final int[] landingPits;
+
+    /**
+     * The pit of the same player aimed at by a pit, as defined by
+     * {@link ScoreComponents}, indexed by {@code pit * pitCount + seeds} for
+     * less than {@code pitCount} seeds, {@code null} for large boards.
+     */
+    private final int[] aimedPits;
+
+    /**
+     * Instantiates a new {@link Geometry} object.
+     *
+     * @param pitsPerPlayer The number of pits per player.
+     */
+    private Geometry(int pitsPerPlayer) {
+        this.pitsPerPlayer = pitsPerPlayer;
+        this.pitCount = (pitsPerPlayer + 1) * 2;
+        this.cycleLength = pitsPerPlayer * 2 + 1;
+        int humanStore = pitsPerPlayer + 1;
+
+        humanNextPits = new int[pitCount + 1];
+        machineNextPits = new int[pitCount + 1];
+        oppositePits = new int[pitCount + 1];
+        owners = new Player[pitCount + 1];
+        stores = new boolean[pitCount + 1];
+        for (int pit = 1; pit <= pitCount; pit++) {
+            int next = pit % pitCount + 1;
+            humanNextPits[pit] = next == pitCount ? 1 : next;
+            machineNextPits[pit] = next == humanStore ? next + 1 : next;
+            owners[pit] = pit > humanStore ? Player.MACHINE : Player.HUMAN;
+            stores[pit] = pit % humanStore == 0;
+            oppositePits[pit] = stores[pit] ? pitCount + humanStore - pit
+                : pitCount - pit;
+        }
+
+        if (pitsPerPlayer > MAX_TABLE_PITS) {
+            landingPits = null;
+            aimedPits = null;
+            return;
+        }
+
+        landingPits = new int[(pitCount + 1) * (cycleLength + 1)];
+        aimedPits = new int[(pitCount + 1) * pitCount];
+        for (int pit = 1; pit <= pitCount; pit++) {
+            if (stores[pit]) {
+                continue;
+            }
+            for (int seeds = 0; seeds <= cycleLength; seeds++) {
+                landingPits[pit * (cycleLength + 1) + seeds] =
+                    calcLandingPit(pit, seeds);
+            }
+            for (int seeds = 1; seeds < pitCount; seeds++) {
+                aimedPits[pit * pitCount + seeds] = calcAimedPit(pit, seeds);
+            }
+        }
+    }
+
+    /**
+     * Gets the geometry of a number of pits per player.
+     *
+     * @param pitsPerPlayer The number of pits per player.
+     * @return The shared geometry, or a new one for a large board.
+     */
+    static Geometry of(int pitsPerPlayer) {
+        if (pitsPerPlayer > MAX_TABLE_PITS) {
+            return new Geometry(pitsPerPlayer);
+        }
+        return CACHE.computeIfAbsent(pitsPerPlayer, Geometry::new);
+    }
+
+    /**
+     * Gets the number of pits per player, without the store.
+     *
+     * @return The number of pits per player.
+     */
+    int getPitsPerPlayer() {
+        return pitsPerPlayer;
+    }
+
+    /**
+     * Gets the number of pits including both stores, which is also the
+     * highest pit number.
+     *
+     * @return The number of pits.
+     */
+    int getPitCount() {
+        return pitCount;
+    }
+
+    /**
+     * Gets the number of pits a player sows into.
+     *
+     * @return The length of the cycle.
+     */
+    int getCycleLength() {
+        return cycleLength;
+    }
+
+    /**
+     * Gets the pit following a pit when a player sows, which skips the store
+     * of the opponent.
+     *
+     * @param mover The sowing player.
+     * @param pit The pit number.
+     * @return The number of the next pit.
+     */
+    int nextPit(Player mover, int pit) {
+        return mover == Player.MACHINE ? machineNextPits[pit]
+            : humanNextPits[pit];
+    }
+
+    /**
+     * Gets the pit opposite to a pit. The stores are opposite to each other.
+     *
+     * @param pit The pit number.
+     * @return The number of the opposite pit.
+     */
+    int getOppositePit(int pit) {
+        return oppositePits[pit];
+    }
+
+    /**
+     * Gets the owner of a pit. The human owns the lower row including her
+     * store, the machine the upper one.
+     *
+     * @param pit The pit number.
+     * @return The owner.
+     */
+    Player getOwner(int pit) {
+        return owners[pit];
+    }
+
+    /**
+     * Checks if a pit is a store.
+     *
+     * @param pit The pit number.
+     * @return {@code true} if the pit is a store.
+     */
+    boolean isStore(int pit) {
+        return stores[pit];
+    }
+
+    /**
+     * Gets the store of a player.
+     *
+     * @param player The player.
+     * @return The pit number of the store.
+     */
+    int getStore(Player player) {
+        return player == Player.MACHINE ? pitCount : pitsPerPlayer + 1;
+    }
+
+    /**
+     * Gets the pit at the same place on the other side of the board, i.e.,
+     * the pit a pit becomes if the players swap their rows. Stores become
+     * stores again.
+     *
+     * @param pit The pit number.
+     * @return The number of the mirrored pit.
+     */
+    int getMirroredPit(int pit) {
+        return (pit + pitsPerPlayer) % pitCount + 1;
+    }
+
+    /**
+     * Gets the pit in which the last seed lands if the owner of a pit sows a
+     * number of seeds from it.
+     *
+     * @param pit The number of a pit which is no store.
+     * @param seeds The number of seeds sown.
+     * @return The number of the landing pit, {@code pit} itself if no seeds
+     *         are sown.
+     */
+    int getLandingPit(int pit, int seeds) {
+        if (landingPits == null) {
+            return calcLandingPit(pit, seeds);
+        }
+        if (seeds > cycleLength) {
+            seeds = (seeds - 1) % cycleLength + 1;
+        }
+        return landingPits[pit * (cycleLength + 1) + seeds];
+    }
+
+    /**
+     * Calculates the landing pit of {@link #getLandingPit(int, int)} without
+     * the table. The pits of the cycle of a player are numbered from its
+     * first pit on, so the store of the opponent is left out.
+     *
+     * @param pit The number of a pit which is no store.
+     * @param seeds The number of seeds sown.
+     * @return The number of the landing pit.
+     */
+    private int calcLandingPit(int pit, int seeds) {
+        if (owners[pit] == Player.HUMAN) {
+            return (pit - 1 + seeds) % cycleLength + 1;
+        }
+
+        int firstPit = pitsPerPlayer + 2;
+        int index = pit >= firstPit ? pit - firstPit : pit + pitsPerPlayer;
+        index = (index + seeds) % cycleLength;
+        return index <= pitsPerPlayer ? index + firstPit
+            : index - pitsPerPlayer;
+    }
+
+    /**
+     * Gets the pit a pit aims at, i.e., the pit its seeds would reach without
+     * skipping a store, if it is a pit of the same player.
+     *
+     * @param pit The number of a pit which is no store.
+     * @param seeds The number of seeds in the pit, at least 1.
+     * @return The pit aimed at, {@code 0} if it is a store, a pit of the
+     *         other player or the pit itself.
+     */
+    int getAimedPit(int pit, int seeds) {
+        if (seeds >= pitCount) {
+            seeds %= pitCount;
+        }
+        if (aimedPits == null) {
+            return calcAimedPit(pit, seeds);
+        }
+        return aimedPits[pit * pitCount + seeds];
+    }
+
+    /**
+     * Calculates the aimed pit of {@link #getAimedPit(int, int)} without the
+     * table.
+     *
+     * @param pit The number of a pit which is no store.
+     * @param seeds The number of seeds in the pit, less than the number of
+     *        pits.
+     * @return The pit aimed at, {@code 0} if it is a store, a pit of the
+     *         other player or the pit itself.
+     */
+    private int calcAimedPit(int pit, int seeds) {
+        int target = (pit + seeds - 1) % pitCount + 1;
+        if (seeds == 0 || stores[target] || owners[target] != owners[pit]) {
+            return 0;
+        }
+        return target;
+    }
+
+}
@@ -0,0 +1,384 @@
+package kalah.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compact encoding of the state of a {@link BoardImpl} for small boards,
+ * meant for raw move generation. Every pit is a byte lane of two longs, pit
+ * {@code p} occupying bits {@code 8 * ((p - 1) % 8)} and up of word
+ * {@code (p - 1) / 8}. This fits boards with up to 16 pits including the
+ * stores, i.e., up to 7 pits per player, and at most 255 seeds, so that no
+ * lane can overflow into its neighbour.
+ *
+ * Operations on many pits work on all lanes of a word at once: sowing adds
+ * one precomputed mask per full lap and one for the remaining seeds, the
+ * seeds of a player are summed by a single multiplication per word and the
+ * end of the game is detected by masking the rows without any branches. The
+ * words describe the seeds completely, so the hash is just a mix of them.
+ *
+ * A move changes the board in place. Since the state is only a few words, a
+ * move is taken back by copying a saved board with
+ * {@link #copyFrom(PackedBoard)}, i.e., a search keeps one board per depth.
+ * The scores of the machine's search are not available, since they depend on
+ * the incremental score components of {@link BoardImpl}.
+ */
+public final class PackedBoard {
+
+    /**
+     * The maximum number of pits including both stores.
+     */
+    public static final int MAX_PITS = 16;
+
+    /**
+     * The maximum number of seeds on the board.
+     */
+    public static final int MAX_SEEDS = 255;
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long PLAYER_KEY = 0x6b616c6168L;
+
+    private final Geometry geometry;
+    private final Masks masks;
+    private long low;
+    private long high;
+    private Player openingPlayer;
+
+    /**
+     * Instantiates a new {@link PackedBoard} object with the seeds and the
+     * player on turn of a board.
+     *
+     * @param board The board to encode.
+     * @throws IllegalArgumentException If the board does not fit, which is
+     *         never the case if {@link #fits(int, int)} holds for its size.
+     */
+    public PackedBoard(BoardImpl board) {
+        this(board.getPitsPerPlayer(), seedsOf(board),
+            board.getOpeningPlayer());
+    }
+
+    /**
+     * Instantiates a new {@link PackedBoard} object with given seeds.
+     *
+     * @param pitsPerPlayer The number of pits per player.
+     * @param seeds The seeds of all pits and stores, indexed by pit number
+     *        like {@link BoardImpl#getSeeds(int)}.
+     * @param openingPlayer The player on turn.
+     * @throws IllegalArgumentException If the board does not fit.
+     */
+    public PackedBoard(int pitsPerPlayer, int[] seeds, Player openingPlayer) {
+        int pitCount = (pitsPerPlayer + 1) * 2;
+        boolean fits = pitsPerPlayer > 0 && pitCount <= MAX_PITS;
+        long totalSeeds = 0;
+        for (int pit = 1; fits && pit <= pitCount; pit++) {
+            fits = seeds[pit] >= 0;
+            totalSeeds += seeds[pit];
+        }
+        if (!fits || totalSeeds > MAX_SEEDS) {
+            throw new IllegalArgumentException(
+                "Error! The board is too large to be packed.");
+        }
+
+        this.geometry = Geometry.of(pitsPerPlayer);
+        this.masks = Masks.of(geometry);
+        for (int pit = 1; pit <= pitCount; pit++) {
+            add(pit, seeds[pit]);
+        }
+        this.openingPlayer = openingPlayer;
+    }
+
+    /**
+     * Copies the seeds of a board into an array.
+     *
+     * @param board The board.
+     * @return The seeds indexed by pit number.
+     */
+    private static int[] seedsOf(BoardImpl board) {
+        int[] seeds = new int[(board.getPitsPerPlayer() + 1) * 2 + 1];
+        for (int pit = 1; pit < seeds.length; pit++) {
+            seeds[pit] = board.getSeeds(pit);
+        }
+
+        return seeds;
+    }
+
+    /**
+     * Checks if boards of a given size fit into the encoding.
+     *
+     * @param pitsPerPlayer The number of pits per player.
+     * @param seedsPerPit The initial number of seeds per pit.
+     * @return {@code true} if such boards can be packed.
+     */
+    public static boolean fits(int pitsPerPlayer, int seedsPerPit) {
+        return pitsPerPlayer > 0 && (pitsPerPlayer + 1) * 2 <= MAX_PITS
+            && seedsPerPit >= 0
+            && 2L * pitsPerPlayer * seedsPerPit <= MAX_SEEDS;
+    }
+
+    /**
+     * Copies the state of another board of the same size into this one.
+     *
+     * @param other The board to copy.
+     */
+    public void copyFrom(PackedBoard other) {
+        this.low = other.low;
+        this.high = other.high;
+        this.openingPlayer = other.openingPlayer;
+    }
+
+    /**
+     * Creates an independent copy of this board.
+     *
+     * @return The copy.
+     */
+    public PackedBoard copy() {
+        return new PackedBoard(this);
+    }
+
+    /**
+     * Instantiates a new {@link PackedBoard} object as a copy.
+     *
+     * @param other The board to copy.
+     */
+    private PackedBoard(PackedBoard other) {
+        this.geometry = other.geometry;
+        this.masks = other.masks;
+        copyFrom(other);
+    }
+
+    /**
+     * Executes a move of the player on turn in place, with the same rules as
+     * {@link BoardImpl#move(int)}: the seeds are sown counter-clockwise
+     * skipping the opponents store, the last seed captures the opposite
+     * seeds if it lands in an empty pit of the mover, and landing in the own
+     * store grants another turn.
+     *
+     * @param pit The number of a non-empty pit of the player on turn.
+     */
+    public void applyMove(int pit) {
+        Player mover = openingPlayer;
+        int sowingSeeds = getSeeds(pit);
+        add(pit, -sowingSeeds);
+
+        // All lanes of the cycle get the full laps at once, the lanes up to
+        // the landing pit one more.
+        int cycleLength = geometry.getCycleLength();
+        int laps = sowingSeeds / cycleLength;
+        int rest = sowingSeeds - laps * cycleLength;
+        int index = mover == Player.MACHINE ? 1 : 0;
+        int restIndex = pit * cycleLength + rest;
+        low += laps * masks.cycleLow[index] + masks.restLow[restIndex];
+        high += laps * masks.cycleHigh[index] + masks.restHigh[restIndex];
+
+        int targetPit = geometry.getLandingPit(pit, sowingSeeds);
+        int store = geometry.getStore(mover);
+        if (targetPit != store && geometry.getOwner(targetPit) == mover
+            && getSeeds(targetPit) == 1) {
+            int opposingPit = geometry.getOppositePit(targetPit);
+            int opposingSeeds = getSeeds(opposingPit);
+            if (opposingSeeds > 0) {
+                add(opposingPit, -opposingSeeds);
+                add(targetPit, -1);
+                add(store, opposingSeeds + 1);
+            }
+        }
+
+        if (isGameOver()) {
+            openingPlayer = Player.NONE;
+        } else if (targetPit != store) {
+            openingPlayer = Player.getOpponent(mover);
+        }
+    }
+
+    /**
+     * Adds seeds to a pit, or removes them if negative.
+     *
+     * @param pit The pit number.
+     * @param seeds The number of seeds to add.
+     */
+    private void add(int pit, int seeds) {
+        long value = (long) seeds << ((pit - 1 & 7) << 3);
+        if (pit <= 8) {
+            low += value;
+        } else {
+            high += value;
+        }
+    }
+
+    /**
+     * Gets the number of seeds in a pit.
+     *
+     * @param pit The pit number.
+     * @return The number of seeds.
+     */
+    public int getSeeds(int pit) {
+        long word = pit <= 8 ? low : high;
+        return (int) (word >>> ((pit - 1 & 7) << 3)) & 0xff;
+    }
+
+    /**
+     * Gets the number of seeds of a player including her store. The lanes
+     * of the player are summed up by multiplying each masked word with a
+     * byte of ones in every lane, which collects the sum in the top lane.
+     *
+     * @param player The player.
+     * @return The seeds of the player.
+     */
+    public int getSeedsOfPlayer(Player player) {
+        int index = player == Player.MACHINE ? 1 : 0;
+        return (int) (((low & masks.playerLow[index]) * ONES) >>> 56)
+            + (int) (((high & masks.playerHigh[index]) * ONES) >>> 56);
+    }
+
+    /**
+     * Checks if the row of a player, without the store, is empty, which ends
+     * the game.
+     *
+     * @return {@code true} if the game is over.
+     */
+    public boolean isGameOver() {
+        return ((low & masks.rowLow[0]) | (high & masks.rowHigh[0])) == 0
+            | ((low & masks.rowLow[1]) | (high & masks.rowHigh[1])) == 0;
+    }
+
+    /**
+     * Gets the player on turn.
+     *
+     * @return The player on turn, {@link Player#NONE} if the game is over.
+     */
+    public Player getOpeningPlayer() {
+        return openingPlayer;
+    }
+
+    /**
+     * Gets the number of pits per player.
+     *
+     * @return The number of pits per player.
+     */
+    public int getPitsPerPlayer() {
+        return geometry.getPitsPerPlayer();
+    }
+
+    /**
+     * Gets a hash of the seeds and the player on turn. The words determine
+     * the seeds completely, so the hash only scrambles them. It differs from
+     * {@link BoardImpl#getHash()}.
+     *
+     * @return The hash.
+     */
+    public long getHash() {
+        return mix(low ^ mix(high ^ PLAYER_KEY * openingPlayer.ordinal()));
+    }
+
+    /**
+     * Scrambles the bits of a value like a single step of a SplitMix64
+     * generator.
+     *
+     * @param value The value to scramble.
+     * @return The scrambled value.
+     */
+    private static long mix(long value) {
+        long z = value + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * The lane masks of a geometry, shared by all boards of the same size.
+     * Masks of two words are held in separate arrays for the low and the
+     * high word, indexed by {@code 0} for the human and {@code 1} for the
+     * machine, or by {@code pit * cycleLength + seeds} for the remaining
+     * seeds of a move.
+     */
+    private static final class Masks {
+
+        private static final Map<Integer, Masks> CACHE =
+            new ConcurrentHashMap<>();
+
+        private final long[] cycleLow = new long[2];
+        private final long[] cycleHigh = new long[2];
+        private final long[] playerLow = new long[2];
+        private final long[] playerHigh = new long[2];
+        private final long[] rowLow = new long[2];
+        private final long[] rowHigh = new long[2];
+        private final long[] restLow;
+        private final long[] restHigh;
+
+        /**
+         * Instantiates a new {@link Masks} object.
+         *
+         * @param geometry The geometry of the boards.
+         */
+        private Masks(Geometry geometry) {
+            int pitCount = geometry.getPitCount();
+            int cycleLength = geometry.getCycleLength();
+            Player[] players = {Player.HUMAN, Player.MACHINE};
+
+            for (int index = 0; index < players.length; index++) {
+                Player player = players[index];
+                for (int pit = 1; pit <= pitCount; pit++) {
+                    if (geometry.getOwner(pit) == player) {
+                        set(playerLow, playerHigh, index, pit, 0xff);
+                        if (!geometry.isStore(pit)) {
+                            set(rowLow, rowHigh, index, pit, 0xff);
+                        }
+                    }
+                    if (pit != geometry.getStore(Player.getOpponent(player))) {
+                        set(cycleLow, cycleHigh, index, pit, 1);
+                    }
+                }
+            }
+
+            restLow = new long[(pitCount + 1) * cycleLength];
+            restHigh = new long[(pitCount + 1) * cycleLength];
+            for (int pit = 1; pit <= pitCount; pit++) {
+                if (geometry.isStore(pit)) {
+                    continue;
+                }
+                Player owner = geometry.getOwner(pit);
+                int nextPit = pit;
+                for (int seeds = 1; seeds < cycleLength; seeds++) {
+                    int index = pit * cycleLength + seeds;
+                    nextPit = geometry.nextPit(owner, nextPit);
+                    restLow[index] = restLow[index - 1];
+                    restHigh[index] = restHigh[index - 1];
+                    set(restLow, restHigh, index, nextPit, 1);
+                }
+            }
+        }
+
+        /**
+         * Sets the lane of a pit in a mask.
+         *
+         * @param lows The low words of the masks.
+         * @param highs The high words of the masks.
+         * @param index The index of the mask.
+         * @param pit The pit number.
+         * @param lane The bits of the lane, {@code 1} for a mask which
+         *        adds a seed, {@code 0xff} for a mask which selects the pit.
+         */
+        private static void set(long[] lows, long[] highs, int index,
+            int pit, long lane) {
+            long bits = lane << ((pit - 1 & 7) << 3);
+            if (pit <= 8) {
+                lows[index] |= bits;
+            } else {
+                highs[index] |= bits;
+            }
+        }
+
+        /**
+         * Gets the masks of a geometry.
+         *
+         * @param geometry The geometry of the boards.
+         * @return The shared masks.
+         */
+        private static Masks of(Geometry geometry) {
+            return CACHE.computeIfAbsent(geometry.getPitsPerPlayer(),
+                k -> new Masks(geometry));
+        }
+
+    }
+
+}
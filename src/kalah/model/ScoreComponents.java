@@ -0,0 +1,209 @@
+package kalah.model;
+
+/**
+ * The parts of the local score of a board which depend on many pits, kept up
+ * to date with every change of a single pit instead of being recalculated for
+ * every score. These are, per player, the catchable seeds of the opponent,
+ * the empty pits whose opposite pits hold at least a threshold of seeds,
+ * twice the initial number by default, and the seeds left in the row, which
+ * decide whether the game is over.
+ *
+ * The catchable seeds follow the rule of the original calculation: every
+ * non-empty pit of a player aims at the pit its seeds would reach without
+ * skipping the opponent's store, and each distinct empty pit of the same
+ * player aimed at adds the seeds of its opposite pit. Therefore the number of
+ * own pits aiming at each pit is counted, and a pit only contributes while
+ * this number is positive.
+ *
+ * A change of a pit affects at most four pits: the pit itself and its opposite
+ * pit, whose contributions depend on both, and the pits it aimed at before and
+ * after the change. Their contributions are subtracted before and added again
+ * after the change.
+ */
+final class ScoreComponents {
+
+    private final Geometry geometry;
+    private final int pitsPerPlayer;
+    private final int pitCount;
+    private final int threshold;
+    private final int[] aimingPits;
+
+    private int humanCatchableSeeds;
+    private int machineCatchableSeeds;
+    private int humanEmptyPits;
+    private int machineEmptyPits;
+    private int humanRowSeeds;
+    private int machineRowSeeds;
+
+    /**
+     * Instantiates a new {@link ScoreComponents} object for an empty board.
+     *
+     * @param geometry The geometry of the board.
+     * @param threshold The minimum number of seeds in the opposite pit of an
+     *        empty pit which counts.
+     */
+    ScoreComponents(Geometry geometry, int threshold) {
+        this.geometry = geometry;
+        this.pitsPerPlayer = geometry.getPitsPerPlayer();
+        this.pitCount = geometry.getPitCount();
+        this.threshold = threshold;
+        this.aimingPits = new int[pitCount + 1];
+
+        // Without any seeds, a pit only counts if the threshold is 0.
+        for (int pit = 1; pit < pitCount; pit++) {
+            if (pit != pitsPerPlayer + 1) {
+                countEmptyPit(pit, 0, 1);
+            }
+        }
+    }
+
+    /**
+     * Sets the number of seeds in a pit and updates the components.
+     *
+     * @param seeds The seeds of the board, indexed by pit number.
+     * @param pit The pit number.
+     * @param value The new number of seeds in the pit.
+     */
+    void update(int[] seeds, int pit, int value) {
+        int oldValue = seeds[pit];
+        if (oldValue == value) {
+            return;
+        }
+        if (geometry.isStore(pit)) {
+            // Stores are neither aimed at nor opposite to a pit of a row.
+            seeds[pit] = value;
+            return;
+        }
+
+        int opposite = pitCount - pit;
+        int oldTarget = oldValue > 0 ? geometry.getAimedPit(pit, oldValue) : 0;
+        int newTarget = value > 0 ? geometry.getAimedPit(pit, value) : 0;
+
+        // The distinct pits whose contributions may change. A pit aiming at
+        // itself is non-empty and never contributes, so it does not count as
+        // aiming at all.
+        int oldAffected = oldTarget;
+        int newAffected = newTarget != oldTarget ? newTarget : 0;
+
+        contribute(seeds, pit, -1);
+        contribute(seeds, opposite, -1);
+        contribute(seeds, oldAffected, -1);
+        contribute(seeds, newAffected, -1);
+
+        aimingPits[oldTarget]--;
+        aimingPits[newTarget]++;
+        seeds[pit] = value;
+        if (pit <= pitsPerPlayer) {
+            humanRowSeeds += value - oldValue;
+        } else {
+            machineRowSeeds += value - oldValue;
+        }
+
+        contribute(seeds, pit, 1);
+        contribute(seeds, opposite, 1);
+        contribute(seeds, oldAffected, 1);
+        contribute(seeds, newAffected, 1);
+    }
+
+    /**
+     * Adds or removes the contribution of a pit of a row to the components.
+     *
+     * @param seeds The seeds of the board, indexed by pit number.
+     * @param pit The pit number, {@code 0} for none.
+     * @param sign {@code 1} to add, {@code -1} to remove the contribution.
+     */
+    private void contribute(int[] seeds, int pit, int sign) {
+        if (pit == 0 || seeds[pit] != 0) {
+            return;
+        }
+        int oppositeSeeds = seeds[pitCount - pit];
+
+        if (aimingPits[pit] > 0) {
+            if (pit <= pitsPerPlayer) {
+                humanCatchableSeeds += sign * oppositeSeeds;
+            } else {
+                machineCatchableSeeds += sign * oppositeSeeds;
+            }
+        }
+        countEmptyPit(pit, oppositeSeeds, sign);
+    }
+
+    /**
+     * Adds or removes an empty pit to the empty pits of its owner if its
+     * opposite pit reaches the threshold.
+     *
+     * @param pit The number of an empty pit.
+     * @param oppositeSeeds The number of seeds in the opposite pit.
+     * @param sign {@code 1} to add, {@code -1} to remove the pit.
+     */
+    private void countEmptyPit(int pit, int oppositeSeeds, int sign) {
+        if (oppositeSeeds >= threshold) {
+            if (pit <= pitsPerPlayer) {
+                humanEmptyPits += sign;
+            } else {
+                machineEmptyPits += sign;
+            }
+        }
+    }
+
+    /**
+     * Gets the seeds of the opponent a player can catch, as defined above.
+     *
+     * @param player The catching player.
+     * @return The catchable seeds.
+     */
+    int getCatchableSeeds(Player player) {
+        return player == Player.HUMAN ? humanCatchableSeeds
+            : machineCatchableSeeds;
+    }
+
+    /**
+     * Gets the number of empty pits of a player whose opposite pits hold at
+     * least the threshold of seeds.
+     *
+     * @param player The player owning the pits.
+     * @return The number of empty pits.
+     */
+    int getEmptyPits(Player player) {
+        return player == Player.HUMAN ? humanEmptyPits : machineEmptyPits;
+    }
+
+    /**
+     * Gets the number of seeds in the row of a player, without the store.
+     *
+     * @param player The player owning the row.
+     * @return The seeds in the row.
+     */
+    int getRowSeeds(Player player) {
+        return player == Player.HUMAN ? humanRowSeeds : machineRowSeeds;
+    }
+
+    /**
+     * Creates an independent copy of these components.
+     *
+     * @return The copy.
+     */
+    ScoreComponents copy() {
+        return new ScoreComponents(this);
+    }
+
+    /**
+     * Instantiates a new {@link ScoreComponents} object as a copy.
+     *
+     * @param other The components to copy.
+     */
+    private ScoreComponents(ScoreComponents other) {
+        this.geometry = other.geometry;
+        this.pitsPerPlayer = other.pitsPerPlayer;
+        this.pitCount = other.pitCount;
+        this.threshold = other.threshold;
+        this.aimingPits = other.aimingPits.clone();
+        this.humanCatchableSeeds = other.humanCatchableSeeds;
+        this.machineCatchableSeeds = other.machineCatchableSeeds;
+        this.humanEmptyPits = other.humanEmptyPits;
+        this.machineEmptyPits = other.machineEmptyPits;
+        this.humanRowSeeds = other.humanRowSeeds;
+        this.machineRowSeeds = other.machineRowSeeds;
+    }
+
+}
@@ -0,0 +1,114 @@
+package kalah.model;
+
+/**
+ * Holds everything needed to take back a move which has been executed in
+ * place by {@link BoardImpl#applyMove(int, UndoRecord)}. The changed pits are
+ * not stored one by one, since they follow from the source pit and the number
+ * of sown seeds. Records are meant to be allocated once per search depth and
+ * reused for every move on that depth.
+ */
+public class UndoRecord {
+
+    private int pit;
+    private int sownSeeds;
+    private int capturedSeeds;
+    private Player openingPlayer;
+    private int sourcePitOfLastMove;
+    private int targetPitOfLastMove;
+    private long hash;
+
+    /**
+     * Stores the state of a board right before a move is executed on it.
+     *
+     * @param pit The source pit of the move.
+     * @param sownSeeds The number of seeds in the source pit.
+     * @param openingPlayer The player who executes the move.
+     * @param sourcePitOfLastMove The source pit of the previous move.
+     * @param targetPitOfLastMove The target pit of the previous move.
+     * @param hash The hash of the board.
+     */
+    void record(int pit, int sownSeeds, Player openingPlayer,
+        int sourcePitOfLastMove, int targetPitOfLastMove, long hash) {
+        this.pit = pit;
+        this.sownSeeds = sownSeeds;
+        this.capturedSeeds = 0;
+        this.openingPlayer = openingPlayer;
+        this.sourcePitOfLastMove = sourcePitOfLastMove;
+        this.targetPitOfLastMove = targetPitOfLastMove;
+        this.hash = hash;
+    }
+
+    /**
+     * Gets the source pit of the recorded move.
+     *
+     * @return The pit number whose seeds have been sown.
+     */
+    public int getPit() {
+        return pit;
+    }
+
+    /**
+     * Gets the number of seeds the recorded move has sown.
+     *
+     * @return The number of seeds taken out of the source pit.
+     */
+    int getSownSeeds() {
+        return sownSeeds;
+    }
+
+    /**
+     * Gets the number of seeds the recorded move has captured from the pit
+     * opposite to its target pit. The last sown seed itself is not included.
+     *
+     * @return The captured seeds, {@code 0} if nothing has been captured.
+     */
+    public int getCapturedSeeds() {
+        return capturedSeeds;
+    }
+
+    /**
+     * Sets the number of seeds captured from the opposing pit.
+     *
+     * @param capturedSeeds The captured seeds.
+     */
+    void setCapturedSeeds(int capturedSeeds) {
+        this.capturedSeeds = capturedSeeds;
+    }
+
+    /**
+     * Gets the player who was on turn before the recorded move.
+     *
+     * @return The player who executed the move.
+     */
+    Player getOpeningPlayer() {
+        return openingPlayer;
+    }
+
+    /**
+     * Gets the source pit of the move preceding the recorded one.
+     *
+     * @return The previous source pit.
+     */
+    int getSourcePitOfLastMove() {
+        return sourcePitOfLastMove;
+    }
+
+    /**
+     * Gets the target pit of the move preceding the recorded one.
+     *
+     * @return The previous target pit.
+     */
+    int getTargetPitOfLastMove() {
+        return targetPitOfLastMove;
+    }
+
+    /**
+     * Gets the hash of the board before the recorded move.
+     *
+     * @return The previous hash.
+     */
+    long getHash() {
+        return hash;
+    }
+
+}
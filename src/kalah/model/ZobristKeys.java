@@ -0,0 +1,165 @@
+package kalah.model;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Random keys for the Zobrist hash of a board. The hash is the XOR of one key
+ * per non-empty pit, depending on the pit and its number of seeds, and one key
+ * for the player on turn. Changing a single pit therefore changes the hash by
+ * XOR-ing the old and the new key of this pit.
+ *
+ * The keys are generated from a fixed seed, so the hash of a board is the same
+ * in every run of the game. They only depend on the geometry of the board and
+ * are shared by all boards of the same geometry.
+ *
+ * The table of keys grows with the number of pits and seeds, so only boards
+ * with up to {@value #MAX_TABLE_KEYS} keys get one, and only the tables of
+ * the first {@value #MAX_CACHED_GEOMETRIES} geometries are kept. The keys of
+ * larger boards are calculated on demand, and keys which are not kept are
+ * collected with the boards using them.
+ */
+final class ZobristKeys {
+
+    private static final long SEED = 0x6b616c6168L;
+
+    /**
+     * The maximum number of seeds per pit with a precomputed key. Keys for
+     * larger numbers are calculated on demand.
+     */
+    private static final int MAX_TABLE_SEEDS = 1024;
+
+    /**
+     * The maximum number of precomputed keys of a geometry.
+     */
+    private static final int MAX_TABLE_KEYS = 1 << 16;
+
+    /**
+     * The maximum number of geometries whose keys are kept.
+     */
+    private static final int MAX_CACHED_GEOMETRIES = 32;
+
+    private static final Map<Long, ZobristKeys> CACHE =
+        new ConcurrentHashMap<>();
+
+    private final long[][] seedKeys;
+    private final long[] playerKeys;
+
+    /**
+     * Instantiates a new {@link ZobristKeys} object.
+     *
+     * @param pitsPerPlayer The number of pits per player.
+     * @param totalSeeds The number of seeds on the board.
+     */
+    private ZobristKeys(int pitsPerPlayer, int totalSeeds) {
+        SplittableRandom random =
+            new SplittableRandom(SEED ^ key(pitsPerPlayer, totalSeeds));
+        int pitCount = (pitsPerPlayer + 1) * 2;
+
+        int tableSeeds = tableSeeds(pitsPerPlayer, totalSeeds);
+        seedKeys = new long[pitCount + 1][tableSeeds + 1];
+        for (int pit = 1; pit <= pitCount; pit++) {
+            // An empty pit does not contribute to the hash.
+            for (int seeds = 1; seeds < seedKeys[pit].length; seeds++) {
+                seedKeys[pit][seeds] = random.nextLong();
+            }
+        }
+
+        playerKeys = new long[Player.values().length];
+        for (int i = 0; i < playerKeys.length; i++) {
+            playerKeys[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Gets the keys for a board geometry.
+     *
+     * @param pitsPerPlayer The number of pits per player.
+     * @param totalSeeds The number of seeds on the board.
+     * @return The shared keys of this geometry.
+     */
+    static ZobristKeys of(int pitsPerPlayer, int totalSeeds) {
+        if (tableSeeds(pitsPerPlayer, totalSeeds) == 0) {
+            return new ZobristKeys(pitsPerPlayer, totalSeeds);
+        }
+
+        long key = key(pitsPerPlayer, totalSeeds);
+        ZobristKeys keys = CACHE.get(key);
+        if (keys != null) {
+            return keys;
+        } else if (CACHE.size() >= MAX_CACHED_GEOMETRIES) {
+            return new ZobristKeys(pitsPerPlayer, totalSeeds);
+        }
+        return CACHE.computeIfAbsent(key,
+            k -> new ZobristKeys(pitsPerPlayer, totalSeeds));
+    }
+
+    /**
+     * Calculates the highest number of seeds per pit with a precomputed key.
+     *
+     * @param pitsPerPlayer The number of pits per player.
+     * @param totalSeeds The number of seeds on the board.
+     * @return The number of seeds, {@code 0} if the board is too large for a
+     *         table.
+     */
+    private static int tableSeeds(int pitsPerPlayer, int totalSeeds) {
+        int tableSeeds = Math.min(Math.max(totalSeeds, 0), MAX_TABLE_SEEDS);
+        long pitCount = (pitsPerPlayer + 1) * 2L;
+        return pitCount * (tableSeeds + 1) > MAX_TABLE_KEYS ? 0 : tableSeeds;
+    }
+
+    /**
+     * Combines the parameters of a geometry into a single cache key.
+     *
+     * @param pitsPerPlayer The number of pits per player.
+     * @param totalSeeds The number of seeds on the board.
+     * @return The cache key.
+     */
+    private static long key(int pitsPerPlayer, int totalSeeds) {
+        return ((long) pitsPerPlayer << 32) | totalSeeds;
+    }
+
+    /**
+     * Gets the key of a pit holding a number of seeds.
+     *
+     * @param pit The pit number.
+     * @param seeds The number of seeds in the pit.
+     * @return The key, {@code 0} for an empty pit.
+     */
+    long seedKey(int pit, int seeds) {
+        long[] keys = seedKeys[pit];
+        if (seeds >= 0 && seeds < keys.length) {
+            return keys[seeds];
+        }
+
+        // Only huge numbers of seeds, boards too large for a table, or boards
+        // set up with a negative number of seeds, get here.
+        return mix(((long) pit << 32) ^ seeds);
+    }
+
+    /**
+     * Scrambles the bits of a value like a single step of a SplitMix64
+     * generator.
+     *
+     * @param value The value to scramble.
+     * @return The scrambled value.
+     */
+    private static long mix(long value) {
+        long z = value + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Gets the key of the player on turn.
+     *
+     * @param player The player on turn.
+     * @return The key.
+     */
+    long playerKey(Player player) {
+        return playerKeys[player.ordinal()];
+    }
+
+}
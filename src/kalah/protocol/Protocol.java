@@ -0,0 +1,78 @@
+package kalah.protocol;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.function.Function;
+
+/**
+ * Runs a {@link Session} on a stream of commands, one per line, and writes a
+ * response line in a {@link ProtocolFormat} for each of them. Blank lines are
+ * skipped without a response.
+ *
+ * Clients may pipeline their commands, i.e., send a whole batch without
+ * waiting for the responses. The responses are collected in a buffer, which
+ * is only written out once the batch has been executed, i.e., no further
+ * command is ready to be read, or once it has grown large. So a batch costs a
+ * single write instead of one per line.
+ */
+public final class Protocol {
+
+    /**
+     * The number of buffered characters which are written out even if more
+     * commands are ready.
+     */
+    private static final int FLUSH_THRESHOLD = 1 << 16;
+
+    private Protocol() {
+    }
+
+    /**
+     * Executes commands until the session is closed or the input ends.
+     *
+     * @param reader The commands.
+     * @param writer The destination of the responses.
+     * @param session The session executing the commands.
+     * @param format The format of the responses.
+     * @throws IOException If reading or writing fails.
+     */
+    public static void run(BufferedReader reader, Writer writer,
+        Session session, ProtocolFormat format) throws IOException {
+        run(reader, writer, session, format, session::execute);
+    }
+
+    /**
+     * Executes commands until the session is closed or the input ends, but
+     * lets the caller execute them, e.g., on another thread.
+     *
+     * @param reader The commands.
+     * @param writer The destination of the responses.
+     * @param session The session whose state ends the loop.
+     * @param format The format of the responses.
+     * @param executor Executes a command on the session and returns the
+     *        response.
+     * @throws IOException If reading or writing fails.
+     */
+    public static void run(BufferedReader reader, Writer writer,
+        Session session, ProtocolFormat format,
+        Function<String, Response> executor) throws IOException {
+        StringBuilder out = new StringBuilder();
+        String line;
+        while (!session.isClosed() && (line = reader.readLine()) != null) {
+            if (!line.trim().isEmpty()) {
+                format.append(executor.apply(line), out);
+                out.append('\n');
+            }
+            if (out.length() > 0
+                && (!reader.ready() || out.length() >= FLUSH_THRESHOLD)) {
+                writer.append(out);
+                writer.flush();
+                out.setLength(0);
+            }
+        }
+
+        writer.append(out);
+        writer.flush();
+    }
+
+}
@@ -0,0 +1,172 @@
+package kalah.protocol;
+
+import kalah.minimax.SearchStats;
+
+/**
+ * The formats of the machine-readable protocol. Each response is written as a
+ * single line, so a client can match the responses to its commands by their
+ * order or by their sequence number.
+ */
+public enum ProtocolFormat {
+
+    /**
+     * One JSON object per line, e.g.,
+     * {@code {"seq":2,"cmd":"move","ok":true,"move":{"pit":3,"target":7},
+     * "replies":[{"pit":10,"target":14}],"board":{"pits":[...],
+     * "turn":"HUMAN","winner":null},"nanos":15000}}. A failed command has
+     * {@code "ok":false} and an {@code "error"} object with a {@code "code"}
+     * and a {@code "message"} instead of the moves.
+     */
+    JSON {
+        @Override
+        public void append(Response response, StringBuilder out) {
+            out.append("{\"seq\":").append(response.getSequence());
+            out.append(",\"cmd\":");
+            appendString(response.getCommand(), out);
+            out.append(",\"ok\":").append(response.isOk());
+            if (!response.isOk()) {
+                out.append(",\"error\":{\"code\":")
+                    .append(response.getErrorCode()).append(",\"message\":");
+                appendString(response.getErrorMessage(), out);
+                out.append('}');
+            }
+            if (response.getMovePit() != 0) {
+                out.append(",\"move\":");
+                appendMove(response.getMovePit(), response.getMoveTarget(),
+                    out);
+            }
+            if (!response.getReplies().isEmpty()) {
+                out.append(",\"replies\":[");
+                for (int i = 0; i < response.getReplies().size(); i++) {
+                    int[] reply = response.getReplies().get(i);
+                    out.append(i > 0 ? "," : "");
+                    appendMove(reply[0], reply[1], out);
+                }
+                out.append(']');
+            }
+            if (response.getBestPit() != 0) {
+                out.append(",\"best\":");
+                appendMove(response.getBestPit(), response.getBestTarget(),
+                    out);
+                SearchStats stats = response.getStats();
+                if (stats != null) {
+                    out.append(",\"nodes\":").append(stats.getNodes())
+                        .append(",\"depth\":").append(stats.getMaxDepth());
+                }
+            }
+            if (response.getPits() != null) {
+                out.append(",\"board\":{\"pits\":[");
+                int[] pits = response.getPits();
+                for (int i = 0; i < pits.length; i++) {
+                    out.append(i > 0 ? "," : "").append(pits[i]);
+                }
+                out.append("],\"turn\":");
+                appendString(response.getTurn().name(), out);
+                out.append(",\"winner\":");
+                if (response.getWinner() == null) {
+                    out.append("null");
+                } else {
+                    appendString(response.getWinner().name(), out);
+                }
+                out.append('}');
+            }
+            out.append(",\"nanos\":").append(response.getNanos()).append('}');
+        }
+
+        /**
+         * Appends a move as an object.
+         *
+         * @param pit The source pit of the move.
+         * @param target The pit of the last seed.
+         * @param out The output to append to.
+         */
+        private void appendMove(int pit, int target, StringBuilder out) {
+            out.append("{\"pit\":").append(pit).append(",\"target\":")
+                .append(target).append('}');
+        }
+
+        /**
+         * Appends a quoted string and escapes the characters JSON requires.
+         *
+         * @param value The string.
+         * @param out The output to append to.
+         */
+        private void appendString(String value, StringBuilder out) {
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.append('\\').append(c);
+                } else if (c < ' ') {
+                    out.append(String.format("\\u%04x", (int) c));
+                } else {
+                    out.append(c);
+                }
+            }
+            out.append('"');
+        }
+    },
+
+    /**
+     * One line of words per response, starting with the sequence number and
+     * {@code ok} or {@code error}, e.g.,
+     * {@code 2 ok move 3 7 reply 10 14 board 4,4,0,5,5,5,1,4,4,4,4,4,4,0
+     * turn HUMAN nanos 15000}. There is a {@code reply} for every move of the
+     * machine and a {@code best} move after an analysis, followed by the
+     * nodes and depth of its search if there was one. A finished game has a
+     * {@code winner} instead of the {@code turn}. A failed command is
+     * followed by the error code and message, which ends the line.
+     */
+    COMPACT {
+        @Override
+        public void append(Response response, StringBuilder out) {
+            out.append(response.getSequence());
+            if (!response.isOk()) {
+                out.append(" error ").append(response.getErrorCode())
+                    .append(' ').append(response.getErrorMessage());
+                return;
+            }
+
+            out.append(" ok");
+            if (response.getMovePit() != 0) {
+                out.append(" move ").append(response.getMovePit()).append(' ')
+                    .append(response.getMoveTarget());
+            }
+            for (int[] reply : response.getReplies()) {
+                out.append(" reply ").append(reply[0]).append(' ')
+                    .append(reply[1]);
+            }
+            if (response.getBestPit() != 0) {
+                out.append(" best ").append(response.getBestPit()).append(' ')
+                    .append(response.getBestTarget());
+                SearchStats stats = response.getStats();
+                if (stats != null) {
+                    out.append(' ').append(stats.getNodes()).append(' ')
+                        .append(stats.getMaxDepth());
+                }
+            }
+            if (response.getPits() != null) {
+                out.append(" board ");
+                int[] pits = response.getPits();
+                for (int i = 0; i < pits.length; i++) {
+                    out.append(i > 0 ? "," : "").append(pits[i]);
+                }
+                if (response.getWinner() == null) {
+                    out.append(" turn ").append(response.getTurn());
+                } else {
+                    out.append(" winner ").append(response.getWinner());
+                }
+            }
+            out.append(" nanos ").append(response.getNanos());
+        }
+    };
+
+    /**
+     * Appends a response as a single line without the line separator.
+     *
+     * @param response The response.
+     * @param out The output to append to.
+     */
+    public abstract void append(Response response, StringBuilder out);
+
+}
@@ -0,0 +1,252 @@
+package kalah.protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+import kalah.minimax.SearchStats;
+import kalah.model.Board;
+import kalah.model.Player;
+
+/**
+ * The result of a single command of a {@link Session}, which a
+ * {@link ProtocolFormat} turns into one line of output. Besides the outcome,
+ * it holds the executed moves, a snapshot of the board afterwards and the time
+ * the command took.
+ */
+public final class Response {
+
+    private final long sequence;
+    private final String command;
+    private int errorCode;
+    private String errorMessage;
+    private int movePit;
+    private int moveTarget;
+    private final List<int[]> replies = new ArrayList<>();
+    private int bestPit;
+    private int bestTarget;
+    private SearchStats stats;
+    private int[] pits;
+    private Player turn;
+    private Player winner;
+    private long nanos;
+
+    /**
+     * Instantiates a new {@link Response} object of a successful command.
+     *
+     * @param sequence The number of the command within its session, starting
+     *        at 1.
+     * @param command The name of the command.
+     */
+    Response(long sequence, String command) {
+        this.sequence = sequence;
+        this.command = command;
+    }
+
+    /**
+     * Marks the command as failed.
+     *
+     * @param code The error code as stated in
+     *        {@link kalah.util.UserCommunication#ERROR_MESSAGES}.
+     * @param message The error message.
+     */
+    void setError(int code, String message) {
+        this.errorCode = code;
+        this.errorMessage = message;
+    }
+
+    /**
+     * Sets the move of the human.
+     *
+     * @param pit The source pit of the move.
+     * @param target The pit of the last seed.
+     */
+    void setMove(int pit, int target) {
+        this.movePit = pit;
+        this.moveTarget = target;
+    }
+
+    /**
+     * Adds a reply of the machine. The machine replies several times if the
+     * human must miss turns.
+     *
+     * @param pit The source pit of the move.
+     * @param target The pit of the last seed.
+     */
+    void addReply(int pit, int target) {
+        replies.add(new int[] {pit, target});
+    }
+
+    /**
+     * Sets the best move found by an analysis, which has not been executed.
+     *
+     * @param pit The source pit of the move.
+     * @param target The pit of the last seed.
+     * @param searchStats The statistics of the search, {@code null} for a
+     *        move from the opening book.
+     */
+    void setBestMove(int pit, int target, SearchStats searchStats) {
+        this.bestPit = pit;
+        this.bestTarget = target;
+        this.stats = searchStats;
+    }
+
+    /**
+     * Takes a snapshot of the board after the command.
+     *
+     * @param board The board of the session.
+     */
+    void setBoard(Board board) {
+        pits = new int[(board.getPitsPerPlayer() + 1) * 2];
+        for (int pit = 1; pit <= pits.length; pit++) {
+            pits[pit - 1] = board.getSeeds(pit);
+        }
+        turn = board.getOpeningPlayer();
+        winner = board.isGameOver() ? board.getWinner() : null;
+    }
+
+    /**
+     * Sets the time the command took.
+     *
+     * @param elapsedNanos The elapsed time in nanoseconds.
+     */
+    void setNanos(long elapsedNanos) {
+        this.nanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the number of the command within its session.
+     *
+     * @return The sequence number, starting at 1.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the name of the command.
+     *
+     * @return The command in lower case.
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * Checks if the command succeeded.
+     *
+     * @return {@code true} if there was no error.
+     */
+    public boolean isOk() {
+        return errorCode == 0;
+    }
+
+    /**
+     * Gets the code of the error.
+     *
+     * @return The error code, {@code 0} if the command succeeded.
+     */
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * Gets the message of the error.
+     *
+     * @return The error message, {@code null} if the command succeeded.
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * Gets the source pit of the move of the human.
+     *
+     * @return The pit, {@code 0} if the command executed no such move.
+     */
+    public int getMovePit() {
+        return movePit;
+    }
+
+    /**
+     * Gets the pit of the last seed of the move of the human.
+     *
+     * @return The pit, {@code 0} if the command executed no such move.
+     */
+    public int getMoveTarget() {
+        return moveTarget;
+    }
+
+    /**
+     * Gets the replies of the machine in the order they were executed.
+     *
+     * @return Pairs of the source pit and the pit of the last seed.
+     */
+    public List<int[]> getReplies() {
+        return replies;
+    }
+
+    /**
+     * Gets the source pit of the best move found by an analysis.
+     *
+     * @return The pit, {@code 0} if the command analysed nothing.
+     */
+    public int getBestPit() {
+        return bestPit;
+    }
+
+    /**
+     * Gets the pit of the last seed of the best move found by an analysis.
+     *
+     * @return The pit, {@code 0} if the command analysed nothing.
+     */
+    public int getBestTarget() {
+        return bestTarget;
+    }
+
+    /**
+     * Gets the statistics of the search of an analysis.
+     *
+     * @return The statistics, {@code null} if there was no search.
+     */
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Gets the seeds of all pits and stores after the command.
+     *
+     * @return The seeds, indexed by the pit number minus one, {@code null}
+     *         if no game has been started.
+     */
+    public int[] getPits() {
+        return pits;
+    }
+
+    /**
+     * Gets the player on turn after the command.
+     *
+     * @return The player, {@code null} if no game has been started.
+     */
+    public Player getTurn() {
+        return turn;
+    }
+
+    /**
+     * Gets the winner if the game is over after the command.
+     *
+     * @return The winner, {@link Player#NONE} for a tie, {@code null} if the
+     *         game is not over.
+     */
+    public Player getWinner() {
+        return winner;
+    }
+
+    /**
+     * Gets the time the command took.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+}
@@ -0,0 +1,392 @@
+package kalah.protocol;
+
+import kalah.minimax.EndgameTablebase;
+import kalah.minimax.OpeningBook;
+import kalah.minimax.SearchCache;
+import kalah.minimax.SearchMode;
+import kalah.model.Board;
+import kalah.model.BoardImpl;
+import kalah.model.EvalParams;
+import kalah.model.Player;
+import kalah.util.UserCommunication;
+
+/**
+ * The state of one client of the machine-readable protocol, i.e., its game
+ * and settings. Unlike the {@link kalah.Shell}, which keeps a single game in
+ * static fields, every session owns its own board, so one process can serve
+ * many clients. A session is not thread-safe, its commands must be executed
+ * one after another.
+ *
+ * Each command is a line of words separated by blanks:
+ * <ul>
+ * <li>{@code new <p> <s>} starts a game with {@code <p>} pits per player and
+ * {@code <s>} seeds per pit, which the human opens. Larger boards than
+ * {@value #MAX_PITS_PER_PLAYER} pits with {@value #MAX_SEEDS_PER_PIT} seeds
+ * are refused, so that a client cannot exhaust the memory of a host.</li>
+ * <li>{@code move <p>} sows pit {@code <p>} of the human and lets the machine
+ * reply as long as it is on turn.</li>
+ * <li>{@code level <i>} sets the search depth 1-7 of the machine.</li>
+ * <li>{@code time <ms>} lets the machine search for a time instead, 0 to use
+ * the level.</li>
+ * <li>{@code analyse} finds the best move of the player on turn without
+ * executing it.</li>
+ * <li>{@code board} only reports the board.</li>
+ * <li>{@code quit} ends the session.</li>
+ * </ul>
+ *
+ * A host serving many sessions can limit the total search time of each
+ * session and the size of its transposition table, and let all sessions
+ * share a {@link SearchCache}. A search for a time never runs longer than
+ * the rest of the search time, and the machine stops replying once it is
+ * used up; a search to a level is bounded by the level and board size.
+ */
+public class Session {
+
+    /**
+     * The deepest level a client may set, like in the shell.
+     */
+    public static final int MAX_LEVEL = 7;
+
+    /**
+     * The largest number of pits per player a client may play with.
+     */
+    public static final int MAX_PITS_PER_PLAYER = 32;
+
+    /**
+     * The largest number of seeds per pit a client may play with.
+     */
+    public static final int MAX_SEEDS_PER_PIT = 64;
+
+    private final EndgameTablebase tablebase;
+    private final OpeningBook book;
+    private final EvalParams evalParams;
+    private Board game;
+    private int level = 3;
+    private long timeBudget;
+    private long searchBudget;
+    private long searchNanos;
+    private int tableSize;
+    private SearchCache cache;
+    private long commandCount;
+    private boolean closed;
+
+    /**
+     * Instantiates a new {@link Session} object.
+     *
+     * @param tablebase The endgame tablebase of the machine, {@code null} for
+     *        none.
+     * @param book The opening book of the machine, {@code null} for none.
+     * @param evalParams The evaluation parameters of the machine.
+     */
+    public Session(EndgameTablebase tablebase, OpeningBook book,
+        EvalParams evalParams) {
+        this.tablebase = tablebase;
+        this.book = book;
+        this.evalParams = evalParams;
+    }
+
+    /**
+     * Limits the total time the machine may search in this session. Once it
+     * is used up, all commands which would search fail.
+     *
+     * @param millis The search time in milliseconds, {@code 0} for no limit.
+     */
+    public void setSearchBudget(long millis) {
+        this.searchBudget = millis;
+    }
+
+    /**
+     * Sets the size of the transposition table of each following game.
+     *
+     * @param megabytes The size in megabytes, {@code 0} for the default size
+     *        of the board.
+     */
+    public void setTableSize(int megabytes) {
+        this.tableSize = megabytes;
+    }
+
+    /**
+     * Sets the cache of the machine's moves for each following game.
+     *
+     * @param cache The cache, {@code null} for none.
+     */
+    public void setSearchCache(SearchCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Checks if a command may let the machine search, which takes far longer
+     * than all other commands.
+     *
+     * @param line The command with its arguments.
+     * @return {@code true} for {@code move} and {@code analyse}.
+     */
+    public static boolean needsSearch(String line) {
+        String command = line.trim().split("\\s+")[0].toLowerCase();
+        return command.equals("move") || command.equals("analyse")
+            || command.equals("analyze");
+    }
+
+    /**
+     * Creates the response to a command which the host refuses to execute,
+     * e.g., since it is too busy.
+     *
+     * @param line The command with its arguments.
+     * @param code The error code as stated in
+     *        {@link UserCommunication#ERROR_MESSAGES}.
+     * @return The response, which counts as a command of this session.
+     */
+    public Response refuse(String line, int code) {
+        Response response = new Response(++commandCount,
+            line.trim().split("\\s+")[0].toLowerCase());
+        response.setError(code, UserCommunication.ERROR_MESSAGES.get(code));
+        return response;
+    }
+
+    /**
+     * Executes a single command.
+     *
+     * @param line The command with its arguments.
+     * @return The response to the command.
+     */
+    public Response execute(String line) {
+        long start = System.nanoTime();
+        String[] words = line.trim().split("\\s+");
+        Response response =
+            new Response(++commandCount, words[0].toLowerCase());
+
+        int error;
+        try {
+            error = execute(words, response);
+        } catch (NumberFormatException e) {
+            error = 100;
+        }
+        if (error != 0) {
+            response.setError(error, UserCommunication.ERROR_MESSAGES
+                .get(error));
+        }
+        if (game != null) {
+            response.setBoard(game);
+        }
+
+        response.setNanos(System.nanoTime() - start);
+        return response;
+    }
+
+    /**
+     * Dispatches a command to its method.
+     *
+     * @param words The command and its arguments.
+     * @param response The response to fill in.
+     * @return The error code, {@code 0} if the command succeeded.
+     * @throws NumberFormatException If an argument is no number.
+     */
+    private int execute(String[] words, Response response) {
+        switch (response.getCommand()) {
+            case "new":
+                return newGame(words);
+            case "move":
+                return move(words, response);
+            case "level":
+                return setLevel(words);
+            case "time":
+                return setTimeBudget(words);
+            case "analyse":
+            case "analyze":
+                return analyse(response);
+            case "board":
+                return game == null ? 300 : 0;
+            case "quit":
+                closed = true;
+                return 0;
+            case "":
+                return 302;
+            default:
+                return 200;
+        }
+    }
+
+    /**
+     * Starts a new game with the current settings.
+     *
+     * @param words The command and its arguments.
+     * @return The error code, {@code 0} if the command succeeded.
+     */
+    private int newGame(String[] words) {
+        if (words.length != 3) {
+            return 101;
+        }
+        int pitsPerPlayer = Integer.parseInt(words[1]);
+        int seedsPerPit = Integer.parseInt(words[2]);
+        if (pitsPerPlayer < 1 || seedsPerPit < 1
+            || pitsPerPlayer > MAX_PITS_PER_PLAYER
+            || seedsPerPit > MAX_SEEDS_PER_PIT) {
+            return 103;
+        }
+
+        game = new BoardImpl(Player.HUMAN, pitsPerPlayer, seedsPerPit, level);
+        game.setTimeBudget(timeBudget);
+        game.setTablebase(tablebase);
+        game.setOpeningBook(book);
+        game.setEvalParams(evalParams);
+        game.setSearchCache(cache);
+        if (tableSize > 0) {
+            ((BoardImpl) game).setTranspositionTable(
+                SearchMode.ALPHA_BETA.createTable(tableSize));
+        }
+        return 0;
+    }
+
+    /**
+     * Executes a move of the human and the replies of the machine.
+     *
+     * @param words The command and its arguments.
+     * @param response The response to fill in.
+     * @return The error code, {@code 0} if the command succeeded.
+     */
+    private int move(String[] words, Response response) {
+        if (words.length != 2) {
+            return 104;
+        }
+        int pit = Integer.parseInt(words[1]);
+        if (pit < 1) {
+            return 103;
+        } else if (game == null) {
+            return 300;
+        } else if (game.isGameOver()) {
+            return 301;
+        } else if (isSearchBudgetUsedUp()) {
+            // Checked before the turn, since the machine may have stopped
+            // replying when the budget ran out.
+            return 500;
+        } else if (game.getOpeningPlayer() != Player.HUMAN) {
+            return 400;
+        } else if (pit > (game.getPitsPerPlayer() + 1) * 2) {
+            return 401;
+        } else if (!game.isLegalMove(pit)) {
+            return 402;
+        }
+
+        game = game.move(pit);
+        response.setMove(game.sourcePitOfLastMove(),
+            game.targetPitOfLastMove());
+        while (game.getOpeningPlayer() == Player.MACHINE
+            && !game.isGameOver() && !isSearchBudgetUsedUp()) {
+            long start = System.nanoTime();
+            limitTimeBudget();
+            game = game.machineMove();
+            searchNanos += System.nanoTime() - start;
+            response.addReply(game.sourcePitOfLastMove(),
+                game.targetPitOfLastMove());
+        }
+        return 0;
+    }
+
+    /**
+     * Limits the time budget of the next search of the game to the rest of
+     * the search budget of this session.
+     */
+    private void limitTimeBudget() {
+        if (timeBudget > 0 && searchBudget > 0) {
+            long restMillis = searchBudget - searchNanos / 1_000_000;
+            game.setTimeBudget(Math.max(1, Math.min(timeBudget, restMillis)));
+        }
+    }
+
+    /**
+     * Sets the level of the machine for this and all following games.
+     *
+     * @param words The command and its arguments.
+     * @return The error code, {@code 0} if the command succeeded.
+     */
+    private int setLevel(String[] words) {
+        if (words.length != 2) {
+            return 201;
+        }
+        int newLevel = Integer.parseInt(words[1]);
+        if (newLevel < 1 || newLevel > MAX_LEVEL) {
+            return 403;
+        }
+
+        level = newLevel;
+        if (game != null) {
+            game.setLevel(level);
+        }
+        return 0;
+    }
+
+    /**
+     * Sets the time budget of the machine for this and all following games.
+     *
+     * @param words The command and its arguments.
+     * @return The error code, {@code 0} if the command succeeded.
+     */
+    private int setTimeBudget(String[] words) {
+        if (words.length != 2) {
+            return 202;
+        }
+        int time = Integer.parseInt(words[1]);
+        if (time < 0) {
+            return 107;
+        }
+
+        timeBudget = time;
+        if (game != null) {
+            game.setTimeBudget(timeBudget);
+        }
+        return 0;
+    }
+
+    /**
+     * Finds the best move of the player on turn with the settings of the
+     * machine, without executing it.
+     *
+     * @param response The response to fill in.
+     * @return The error code, {@code 0} if the command succeeded.
+     */
+    private int analyse(Response response) {
+        if (game == null) {
+            return 300;
+        } else if (game.isGameOver()) {
+            return 301;
+        } else if (isSearchBudgetUsedUp()) {
+            return 500;
+        }
+
+        long start = System.nanoTime();
+        limitTimeBudget();
+        Board board = game.searchMove();
+        searchNanos += System.nanoTime() - start;
+        response.setBestMove(board.sourcePitOfLastMove(),
+            board.targetPitOfLastMove(), board.getSearchStats());
+        return 0;
+    }
+
+    /**
+     * Checks if the machine has searched for longer than the search budget.
+     *
+     * @return {@code true} if no further search is allowed.
+     */
+    private boolean isSearchBudgetUsedUp() {
+        return searchBudget > 0 && searchNanos >= searchBudget * 1_000_000;
+    }
+
+    /**
+     * Gets the board of the current game.
+     *
+     * @return The board, {@code null} if no game has been started.
+     */
+    public Board getGame() {
+        return game;
+    }
+
+    /**
+     * Checks if the client has ended the session.
+     *
+     * @return {@code true} after the command {@code quit}.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+}
@@ -0,0 +1,556 @@
+package kalah.server;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import kalah.minimax.EndgameTablebase;
+import kalah.minimax.OpeningBook;
+import kalah.minimax.SearchCache;
+import kalah.model.EvalParams;
+import kalah.protocol.Protocol;
+import kalah.protocol.ProtocolFormat;
+import kalah.protocol.Response;
+import kalah.protocol.Session;
+
+/**
+ * Hosts many games in one process. Clients connect to a socket on the
+ * loopback interface and speak the line protocol of {@link Session} in a
+ * {@link ProtocolFormat}, and every connection owns its own session and
+ * thereby its own board.
+ *
+ * Every connection is served by its own thread, which is a virtual thread if
+ * the runtime supports them, so thousands of mostly idle connections are
+ * cheap. The searches of the machine run on a bounded pool of worker threads
+ * instead, since they are bound by the processors. The server protects itself
+ * in several ways:
+ * <ul>
+ * <li>Connections beyond the maximum number of sessions are refused with an
+ * error line.</li>
+ * <li>Searching commands beyond the capacity of the queue of the worker pool
+ * fail with an error instead of waiting, so the client can retry.</li>
+ * <li>Every session has a total search time, see
+ * {@link Session#setSearchBudget(long)}, and a transposition table of a small
+ * fixed size.</li>
+ * <li>Sessions which send no command within the idle timeout are closed.</li>
+ * <li>A command which fails unexpectedly is answered with an error line, and
+ * the session goes on.</li>
+ * </ul>
+ *
+ * With {@code --cache}, all sessions share a {@link SearchCache} of the given
+ * number of entries. With {@code --cache-file} in addition, the cache is
+ * warmed up from the file at startup, if it exists, and written back to it
+ * when the process shuts down.
+ *
+ * Usage: {@code GameServer [--port <n>] [--sessions <n>] [--workers <n>]
+ * [--queue <n>] [--idle <ms>] [--budget <ms>] [--table <mb>]
+ * [--protocol json|compact] [--tablebase <file>] [--book <file>]
+ * [--eval <file>] [--cache <entries> [--cache-file <file>]]}, with the port
+ * 7070, 1024 sessions, a worker per processor, a queue of 256 searches, an
+ * idle timeout of 5 minutes, no search budget, tables of 1 MB and no cache by
+ * default.
+ */
+public final class GameServer implements Closeable {
+
+    /**
+     * The number of connections the operating system queues before they are
+     * accepted.
+     */
+    private static final int BACKLOG = 1024;
+
+    private final int port;
+    private int maxSessions = 1024;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = 256;
+    private long idleTimeout = 300_000;
+    private long searchBudget;
+    private int tableSize = 1;
+    private ProtocolFormat format = ProtocolFormat.JSON;
+    private EndgameTablebase tablebase;
+    private OpeningBook book;
+    private EvalParams evalParams = EvalParams.DEFAULT;
+    private SearchCache cache;
+
+    private ServerSocket serverSocket;
+    private ExecutorService connectionExecutor;
+    private ThreadPoolExecutor searchExecutor;
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final LongAdder refusedSessions = new LongAdder();
+    private final LongAdder evictedSessions = new LongAdder();
+    private final LongAdder busyCommands = new LongAdder();
+    private final LongAdder failedCommands = new LongAdder();
+
+    /**
+     * Instantiates a new {@link GameServer} object, which does not listen
+     * before it is started.
+     *
+     * @param port The port to listen on, {@code 0} for any free one.
+     */
+    public GameServer(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Starts the server.
+     *
+     * @param args The options, see the description of this class.
+     * @throws IOException If a file cannot be read or the port is taken.
+     */
+    public static void main(String[] args) throws IOException {
+        GameServer server = new GameServer(
+            Integer.parseInt(option(args, "--port", "7070")));
+        server.setMaxSessions(
+            Integer.parseInt(option(args, "--sessions", "1024")));
+        server.setWorkers(Integer.parseInt(option(args, "--workers",
+            String.valueOf(Runtime.getRuntime().availableProcessors()))));
+        server.setQueueCapacity(
+            Integer.parseInt(option(args, "--queue", "256")));
+        server.setIdleTimeout(
+            Long.parseLong(option(args, "--idle", "300000")));
+        server.setSearchBudget(Long.parseLong(option(args, "--budget", "0")));
+        server.setTableSize(Integer.parseInt(option(args, "--table", "1")));
+        server.setFormat(ProtocolFormat.valueOf(
+            option(args, "--protocol", "json").toUpperCase()));
+        String file = option(args, "--tablebase", null);
+        if (file != null) {
+            server.setTablebase(EndgameTablebase.open(Paths.get(file)));
+        }
+        file = option(args, "--book", null);
+        if (file != null) {
+            server.setOpeningBook(OpeningBook.read(Paths.get(file)));
+        }
+        file = option(args, "--eval", null);
+        if (file != null) {
+            server.setEvalParams(EvalParams.read(Paths.get(file)));
+        }
+        int cacheSize = Integer.parseInt(option(args, "--cache", "0"));
+        if (cacheSize > 0) {
+            SearchCache cache = new SearchCache(cacheSize);
+            cache.register();
+            server.setSearchCache(cache);
+            file = option(args, "--cache-file", null);
+            if (file != null) {
+                warmUp(cache, Paths.get(file), server.evalParams,
+                    server.tablebase);
+            }
+        }
+
+        server.start();
+        System.out.println("Listening on "
+            + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+            + server.getPort());
+    }
+
+    /**
+     * Reads a cache from a file if it exists, and writes the cache back to it
+     * when the process shuts down.
+     *
+     * @param cache The cache.
+     * @param file The path of the file.
+     * @param params The evaluation parameters of the sessions.
+     * @param tablebase The endgame tablebase of the sessions.
+     * @throws IOException If the file cannot be read.
+     */
+    private static void warmUp(SearchCache cache, Path file,
+        EvalParams params, EndgameTablebase tablebase) throws IOException {
+        if (Files.exists(file)) {
+            System.out.println("Read " + cache.read(file, params, tablebase)
+                + " cached moves");
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                cache.write(file, params, tablebase);
+            } catch (IOException e) {
+                System.err.println("Cannot write the cache: "
+                    + e.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * Gets the value of an option of the command line.
+     *
+     * @param args The command line.
+     * @param name The name of the option.
+     * @param defaultValue The value if the option is missing.
+     * @return The value.
+     */
+    private static String option(String[] args, String name,
+        String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Sets the maximum number of sessions at the same time.
+     *
+     * @param maxSessions The maximum number of connections.
+     */
+    public void setMaxSessions(int maxSessions) {
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Sets the number of threads searching for the machine's moves. Only
+     * applies if set before the server is started.
+     *
+     * @param workers The number of worker threads.
+     */
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * Sets the number of searching commands which may wait for a worker.
+     * Only applies if set before the server is started.
+     *
+     * @param queueCapacity The capacity of the queue.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Sets the time after which a session without commands is closed.
+     *
+     * @param millis The timeout in milliseconds, {@code 0} for none.
+     */
+    public void setIdleTimeout(long millis) {
+        this.idleTimeout = millis;
+    }
+
+    /**
+     * Sets the total search time of each new session, see
+     * {@link Session#setSearchBudget(long)}.
+     *
+     * @param millis The search time in milliseconds, {@code 0} for no limit.
+     */
+    public void setSearchBudget(long millis) {
+        this.searchBudget = millis;
+    }
+
+    /**
+     * Sets the size of the transposition table of each game.
+     *
+     * @param megabytes The size in megabytes.
+     */
+    public void setTableSize(int megabytes) {
+        this.tableSize = megabytes;
+    }
+
+    /**
+     * Sets the format of the responses of new sessions.
+     *
+     * @param format The format.
+     */
+    public void setFormat(ProtocolFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Sets the endgame tablebase of the machine in new sessions.
+     *
+     * @param tablebase The tablebase, {@code null} for none.
+     */
+    public void setTablebase(EndgameTablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Sets the opening book of the machine in new sessions.
+     *
+     * @param book The opening book, {@code null} for none.
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Sets the evaluation parameters of the machine in new sessions.
+     *
+     * @param evalParams The parameters.
+     */
+    public void setEvalParams(EvalParams evalParams) {
+        this.evalParams = evalParams;
+    }
+
+    /**
+     * Sets the cache of the machine's moves shared by all sessions.
+     *
+     * @param cache The cache, {@code null} for none.
+     */
+    public void setSearchCache(SearchCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Starts listening on the loopback interface and accepting connections
+     * in a background thread, which keeps the process alive until the server
+     * is closed.
+     *
+     * @throws IOException If the port cannot be bound.
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port, BACKLOG,
+            InetAddress.getLoopbackAddress());
+        connectionExecutor = createConnectionExecutor();
+        searchExecutor = new ThreadPoolExecutor(workers, workers, 0,
+            TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+            daemonThreads("kalah-search-"));
+
+        Thread acceptor = new Thread(this::acceptConnections, "kalah-accept");
+        acceptor.start();
+    }
+
+    /**
+     * Creates the executor running one thread per connection, which uses
+     * virtual threads if the runtime has them.
+     *
+     * @return The executor.
+     */
+    private static ExecutorService createConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(
+                daemonThreads("kalah-connection-"));
+        }
+    }
+
+    /**
+     * Creates a factory of daemon threads, which do not keep the process
+     * alive on their own.
+     *
+     * @param prefix The prefix of the names of the threads.
+     * @return The thread factory.
+     */
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread =
+                new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Accepts connections until the server is closed, and hands each of them
+     * to a thread of its own.
+     */
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                break; // The server has been closed.
+            }
+
+            if (activeSessions.incrementAndGet() > maxSessions) {
+                activeSessions.decrementAndGet();
+                refusedSessions.increment();
+                connectionExecutor.execute(() -> refuse(socket));
+            } else {
+                connectionExecutor.execute(() -> serve(socket));
+            }
+        }
+    }
+
+    /**
+     * Tells a client that there are too many sessions and closes the
+     * connection.
+     *
+     * @param socket The connection.
+     */
+    private void refuse(Socket socket) {
+        try (Socket connection = socket) {
+            Session session = new Session(null, null, evalParams);
+            StringBuilder out = new StringBuilder();
+            format.append(session.refuse("connect", 501), out);
+            out.append('\n');
+            Writer writer = new OutputStreamWriter(
+                connection.getOutputStream(), StandardCharsets.UTF_8);
+            writer.append(out);
+            writer.flush();
+        } catch (IOException e) {
+            // The client is gone already.
+        }
+    }
+
+    /**
+     * Runs a session on a connection until the client quits, disconnects or
+     * idles for too long.
+     *
+     * @param socket The connection.
+     */
+    private void serve(Socket socket) {
+        Session session = new Session(tablebase, book, evalParams);
+        session.setSearchBudget(searchBudget);
+        session.setTableSize(tableSize);
+        session.setSearchCache(cache);
+        try (Socket connection = socket) {
+            connection.setSoTimeout((int) idleTimeout);
+            connection.setTcpNoDelay(true);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                connection.getInputStream(), StandardCharsets.UTF_8));
+            Writer writer = new OutputStreamWriter(
+                connection.getOutputStream(), StandardCharsets.UTF_8);
+            Protocol.run(reader, writer, session, format,
+                line -> execute(session, line));
+        } catch (SocketTimeoutException e) {
+            evictedSessions.increment();
+        } catch (IOException e) {
+            // The client has disconnected.
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Executes a command of a session. Commands which search run on the worker
+     * pool, all others in the thread of the connection.
+     *
+     * @param session The session.
+     * @param line The command with its arguments.
+     * @return The response.
+     */
+    private Response execute(Session session, String line) {
+        if (!Session.needsSearch(line)) {
+            try {
+                return session.execute(line);
+            } catch (RuntimeException e) {
+                return fail(session, line, e);
+            }
+        }
+
+        Future<Response> future;
+        try {
+            future = searchExecutor.submit(() -> session.execute(line));
+        } catch (RejectedExecutionException e) {
+            busyCommands.increment();
+            return session.refuse(line, 502);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fail(session, line, e);
+        } catch (ExecutionException e) {
+            return fail(session, line, e.getCause());
+        }
+    }
+
+    /**
+     * Reports a command which failed unexpectedly, so that the client gets a
+     * response and the session goes on.
+     *
+     * @param session The session.
+     * @param line The command with its arguments.
+     * @param cause The cause of the failure.
+     * @return The error response.
+     */
+    private Response fail(Session session, String line, Throwable cause) {
+        failedCommands.increment();
+        System.err.println("Command " + line.trim() + " failed: " + cause);
+        return session.refuse(line, 503);
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return The local port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the number of open sessions.
+     *
+     * @return The number of connections being served.
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * Gets the number of connections refused since there were too many
+     * sessions.
+     *
+     * @return The number of refused connections.
+     */
+    public long getRefusedSessions() {
+        return refusedSessions.sum();
+    }
+
+    /**
+     * Gets the number of sessions closed since they idled for too long.
+     *
+     * @return The number of evicted sessions.
+     */
+    public long getEvictedSessions() {
+        return evictedSessions.sum();
+    }
+
+    /**
+     * Gets the number of searching commands which failed since the queue of
+     * the worker pool was full.
+     *
+     * @return The number of refused commands.
+     */
+    public long getBusyCommands() {
+        return busyCommands.sum();
+    }
+
+    /**
+     * Gets the number of commands which failed unexpectedly.
+     *
+     * @return The number of failed commands.
+     */
+    public long getFailedCommands() {
+        return failedCommands.sum();
+    }
+
+    /**
+     * Stops accepting connections and lets the searches in progress finish.
+     * Open connections stay open, but their searching commands fail as if
+     * the server were busy.
+     *
+     * @throws IOException If closing the socket fails.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        searchExecutor.shutdown();
+        connectionExecutor.shutdown();
+    }
+
+}
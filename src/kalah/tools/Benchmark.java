@@ -0,0 +1,304 @@
+package kalah.tools;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntToLongFunction;
+import kalah.minimax.ScoreTable;
+import kalah.minimax.TranspositionTable;
+import kalah.model.BoardImpl;
+import kalah.model.PackedBoard;
+import kalah.model.Player;
+
+/**
+ * Micro-benchmarks of the rules engine and the machine's search on several
+ * board sizes. Each benchmark runs an operation on a set of {@link Corpus}
+ * positions, first for a warm-up period to let the JIT compiler settle, then
+ * for a measurement period, and reports the time per operation, the
+ * throughput, the bytes allocated per operation by the benchmark thread and
+ * the garbage collections during the measurement.
+ *
+ * The benchmarks are {@code clone}, {@code move}, which sows the seeds of a
+ * pit of the human, {@code packedMove}, which does the same on a copy of a
+ * {@link PackedBoard} if the board fits, {@code calcScore},
+ * {@code calcScaledScore}, {@code isGameOver}, {@code getSeedsOfPlayer} and
+ * {@code machineMove} for every level up to the maximum level, which starts
+ * each search with an empty transposition table of {@value #TABLE_SIZE_MB} MB.
+ * A filter restricts the run to the benchmarks whose name contains it.
+ *
+ * Usage: {@code Benchmark [filter] [warm-up ms] [measurement ms] [max level]}
+ */
+public final class Benchmark {
+
+    /**
+     * The board sizes as pairs of pits per player and seeds per pit.
+     */
+    static final int[][] SIZES = {{4, 2}, {6, 3}, {6, 4}, {10, 8}};
+
+    private static final int POSITIONS = 64;
+    private static final int TABLE_SIZE_MB = 1;
+    private static final long SEED = 42;
+
+    /**
+     * The minimum duration of a batch of operations between two looks at the
+     * clock.
+     */
+    private static final long MIN_BATCH_NANOS = 10_000_000;
+
+    /**
+     * Receives the results of the operations, so that the JIT compiler cannot
+     * eliminate them.
+     */
+    private static volatile long sink;
+
+    private Benchmark() {
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args The optional filter, warm-up and measurement period in
+     *        milliseconds and maximum level of {@code machineMove}.
+     */
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+        long warmupMillis = args.length > 1 ? Long.parseLong(args[1]) : 500;
+        long measureMillis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        int maxLevel = args.length > 3 ? Integer.parseInt(args[3]) : 7;
+
+        System.out.format("%-16s %6s %5s %10s %14s %14s %10s %4s %6s%n",
+            "benchmark", "size", "level", "ops", "ns/op", "ops/s", "B/op",
+            "gc", "gc ms");
+        for (int[] size : SIZES) {
+            List<BoardImpl> positions =
+                Corpus.generate(SEED, POSITIONS, size[0], size[1]);
+            BoardImpl[] all = positions.toArray(new BoardImpl[0]);
+            BoardImpl[] human = onTurn(positions, Player.HUMAN);
+            BoardImpl[] machine = onTurn(positions, Player.MACHINE);
+            int[] humanPits = new int[human.length];
+            for (int i = 0; i < human.length; i++) {
+                humanPits[i] = firstPit(human[i]);
+            }
+
+            Runner runner =
+                new Runner(filter, size, warmupMillis, measureMillis);
+            runner.run("clone", 0,
+                i -> all[i % all.length].clone().getSeeds(1));
+            runner.run("move", 0, i -> {
+                int index = i % human.length;
+                return human[index].move(humanPits[index])
+                    .targetPitOfLastMove();
+            });
+            if (PackedBoard.fits(size[0], size[1])) {
+                PackedBoard[] packed = new PackedBoard[human.length];
+                for (int i = 0; i < human.length; i++) {
+                    packed[i] = new PackedBoard(human[i]);
+                }
+                PackedBoard scratch = packed[0].copy();
+                runner.run("packedMove", 0, i -> {
+                    int index = i % packed.length;
+                    scratch.copyFrom(packed[index]);
+                    scratch.applyMove(humanPits[index]);
+                    return scratch.getHash();
+                });
+            }
+            runner.run("calcScore", 0, i -> Double.doubleToRawLongBits(
+                all[i % all.length].calcScore(1)));
+            runner.run("calcScaledScore", 0,
+                i -> all[i % all.length].calcScaledScore(1));
+            runner.run("isGameOver", 0,
+                i -> all[i % all.length].isGameOver() ? 1 : 0);
+            runner.run("getSeedsOfPlayer", 0,
+                i -> all[i % all.length].getSeedsOfPlayer(Player.MACHINE));
+
+            for (int level = 1; level <= maxLevel; level++) {
+                // The positions are searched again and again, so each search
+                // starts with an empty table, which takes a few microseconds.
+                ScoreTable table = new TranspositionTable(TABLE_SIZE_MB);
+                for (BoardImpl board : machine) {
+                    board.setLevel(level);
+                    board.setTranspositionTable(table);
+                }
+                runner.run("machineMove", level, i -> {
+                    table.clear();
+                    return machine[i % machine.length].machineMove()
+                        .sourcePitOfLastMove();
+                });
+            }
+        }
+    }
+
+    /**
+     * Selects the positions on which a player is on turn.
+     *
+     * @param positions The positions to select from.
+     * @param player The player on turn.
+     * @return The selected positions.
+     */
+    private static BoardImpl[] onTurn(List<BoardImpl> positions,
+        Player player) {
+        List<BoardImpl> selected = new ArrayList<>();
+        for (BoardImpl board : positions) {
+            if (board.getOpeningPlayer() == player) {
+                selected.add(board);
+            }
+        }
+
+        return selected.toArray(new BoardImpl[0]);
+    }
+
+    /**
+     * Finds the first non-empty pit of the human.
+     *
+     * @param board The board to search.
+     * @return The pit number.
+     */
+    private static int firstPit(BoardImpl board) {
+        int pit = 1;
+        while (board.getSeeds(pit) == 0) {
+            pit++;
+        }
+
+        return pit;
+    }
+
+    /**
+     * Measures the operations of one board size.
+     */
+    private static final class Runner {
+
+        private final String filter;
+        private final String size;
+        private final long warmupNanos;
+        private final long measureNanos;
+
+        /**
+         * Instantiates a new {@link Runner} object.
+         *
+         * @param filter The part of the names of the benchmarks to run.
+         * @param size The board size as pits per player and seeds per pit.
+         * @param warmupMillis The warm-up period in milliseconds.
+         * @param measureMillis The measurement period in milliseconds.
+         */
+        private Runner(String filter, int[] size, long warmupMillis,
+            long measureMillis) {
+            this.filter = filter;
+            this.size = size[0] + "x" + size[1];
+            this.warmupNanos = warmupMillis * 1_000_000;
+            this.measureNanos = measureMillis * 1_000_000;
+        }
+
+        /**
+         * Runs and reports a benchmark if it matches the filter.
+         *
+         * @param name The name of the benchmark.
+         * @param level The level of the search, {@code 0} if none.
+         * @param operation The operation, which gets the number of the
+         *        invocation and returns a result for the sink.
+         */
+        private void run(String name, int level,
+            IntToLongFunction operation) {
+            if (!name.contains(filter)) {
+                return;
+            }
+
+            loop(operation, warmupNanos);
+
+            long allocatedBefore = allocatedBytes();
+            long collectionsBefore = collections();
+            long collectionMillisBefore = collectionMillis();
+            long start = System.nanoTime();
+            long ops = loop(operation, measureNanos);
+            long elapsed = System.nanoTime() - start;
+            long allocated = allocatedBytes() - allocatedBefore;
+
+            System.out.format(
+                "%-16s %6s %5s %10d %14.1f %14.0f %10s %4d %6d%n", name, size,
+                level == 0 ? "-" : String.valueOf(level), ops,
+                (double) elapsed / ops, ops * 1e9 / elapsed,
+                allocatedBefore < 0 ? "n/a"
+                    : String.format("%.1f", (double) allocated / ops),
+                collections() - collectionsBefore,
+                collectionMillis() - collectionMillisBefore);
+        }
+
+        /**
+         * Invokes an operation in batches until a period has passed.
+         *
+         * @param operation The operation.
+         * @param nanos The period in nanoseconds.
+         * @return The number of invocations.
+         */
+        private static long loop(IntToLongFunction operation, long nanos) {
+            long start = System.nanoTime();
+            long ops = 0;
+            int batch = 1;
+            long result = 0;
+            while (System.nanoTime() - start < nanos) {
+                long batchStart = System.nanoTime();
+                for (int i = 0; i < batch; i++) {
+                    result += operation.applyAsLong((int) (ops + i));
+                }
+                ops += batch;
+
+                if (System.nanoTime() - batchStart < MIN_BATCH_NANOS
+                    && batch < 1 << 20) {
+                    batch *= 2;
+                }
+            }
+
+            sink += result;
+            return ops;
+        }
+
+        /**
+         * Gets the number of bytes allocated by the current thread so far.
+         *
+         * @return The allocated bytes, or {@code -1} if the virtual machine
+         *         does not support measuring them.
+         */
+        private static long allocatedBytes() {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                return ((com.sun.management.ThreadMXBean) bean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+
+            return -1;
+        }
+
+        /**
+         * Gets the number of garbage collections so far.
+         *
+         * @return The number of collections of all collectors.
+         */
+        private static long collections() {
+            long count = 0;
+            for (GarbageCollectorMXBean bean
+                : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(bean.getCollectionCount(), 0);
+            }
+
+            return count;
+        }
+
+        /**
+         * Gets the time spent in garbage collections so far.
+         *
+         * @return The accumulated collection time in milliseconds.
+         */
+        private static long collectionMillis() {
+            long millis = 0;
+            for (GarbageCollectorMXBean bean
+                : ManagementFactory.getGarbageCollectorMXBeans()) {
+                millis += Math.max(bean.getCollectionTime(), 0);
+            }
+
+            return millis;
+        }
+
+    }
+
+}
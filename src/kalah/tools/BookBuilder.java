@@ -0,0 +1,127 @@
+package kalah.tools;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import kalah.minimax.AlphaBeta;
+import kalah.minimax.OpeningBook;
+import kalah.minimax.Search;
+import kalah.minimax.TranspositionTable;
+import kalah.model.BoardImpl;
+import kalah.model.Player;
+import kalah.model.UndoRecord;
+
+/**
+ * Builds an {@link OpeningBook} by deep searches of the positions of the
+ * first plies of games on standard board sizes, for either player opening
+ * the game. A ply is a single sowing, like in {@link Perft}. All moves of the
+ * human are followed, but only the book move of the machine, since the
+ * machine never plays another one. Positions reached by different orders of
+ * moves are searched once.
+ *
+ * Usage: {@code BookBuilder <file> [plies] [level] [<pits>x<seeds> ...]}
+ * with 6 plies, level 11 and the sizes 6x3, 6x4 and 6x6 by default.
+ */
+public final class BookBuilder {
+
+    /**
+     * The board sizes of the book if none are given.
+     */
+    static final String[] DEFAULT_SIZES = {"6x3", "6x4", "6x6"};
+
+    private static final int TABLE_SIZE_MB = 64;
+
+    private final Map<Long, Integer> entries = new HashMap<>();
+    private final Search search;
+    private final UndoRecord[] records;
+
+    /**
+     * Instantiates a new {@link BookBuilder} object.
+     *
+     * @param plies The number of plies to cover.
+     * @param level The level of the searches.
+     */
+    private BookBuilder(int plies, int level) {
+        this.search = new AlphaBeta(level, true,
+            new TranspositionTable(TABLE_SIZE_MB));
+        this.records = new UndoRecord[plies];
+        for (int i = 0; i < plies; i++) {
+            records[i] = new UndoRecord();
+        }
+    }
+
+    /**
+     * Builds the book and writes it.
+     *
+     * @param args The path of the file, the optional number of plies, level
+     *        and board sizes.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: BookBuilder <file> [plies] [level] "
+                + "[<pits>x<seeds> ...]");
+            System.exit(2);
+        }
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int level = args.length > 2 ? Integer.parseInt(args[2]) : 11;
+        String[] sizes = args.length > 3
+            ? Arrays.copyOfRange(args, 3, args.length)
+            : DEFAULT_SIZES;
+
+        BookBuilder builder = new BookBuilder(plies, level);
+        for (String size : sizes) {
+            String[] parts = size.split("x");
+            int pitsPerPlayer = Integer.parseInt(parts[0]);
+            int seedsPerPit = Integer.parseInt(parts[1]);
+
+            int before = builder.entries.size();
+            long start = System.nanoTime();
+            for (Player openingPlayer : new Player[] {Player.HUMAN,
+                Player.MACHINE}) {
+                builder.expand(new BoardImpl(openingPlayer, pitsPerPlayer,
+                    seedsPerPit, level), 0);
+            }
+            System.out.format("%-6s %6d positions %10.1f s%n", size,
+                builder.entries.size() - before,
+                (System.nanoTime() - start) / 1e9);
+        }
+
+        OpeningBook.write(Paths.get(args[0]), builder.entries);
+        System.out.format("%d positions written%n", builder.entries.size());
+    }
+
+    /**
+     * Searches the machine's positions below a board.
+     *
+     * @param board The board, which is changed in place and restored.
+     * @param ply The number of plies executed so far.
+     */
+    private void expand(BoardImpl board, int ply) {
+        if (ply == records.length || board.isGameOver()) {
+            return;
+        }
+
+        Player player = board.getOpeningPlayer();
+        UndoRecord record = records[ply];
+        if (player == Player.MACHINE) {
+            Integer pit = entries.get(board.getHash());
+            if (pit == null) {
+                pit = search.bestMove(board);
+                entries.put(board.getHash(), pit);
+            }
+            board.applyMove(pit, record);
+            expand(board, ply + 1);
+            board.undoMove(record);
+        } else if (player == Player.HUMAN) {
+            for (int pit : board.getLegalMoves()) {
+                board.applyMove(pit, record);
+                expand(board, ply + 1);
+                board.undoMove(record);
+            }
+        }
+    }
+
+}
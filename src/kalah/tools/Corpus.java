@@ -0,0 +1,117 @@
+package kalah.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import kalah.model.BoardImpl;
+import kalah.model.Player;
+import kalah.model.UndoRecord;
+
+/**
+ * Generates a reproducible corpus of game positions for regression checks of
+ * the machine's search. The positions are reached by random moves from the
+ * initial boards of several geometries and are never game over.
+ */
+public final class Corpus {
+
+    /**
+     * The geometries of the corpus as pairs of pits per player and seeds per
+     * pit.
+     */
+    static final int[][] GEOMETRIES = {
+        {2, 4}, {3, 6}, {4, 2}, {4, 3}, {5, 3}, {6, 3}, {6, 4}, {7, 2}
+    };
+
+    /**
+     * The maximum number of random moves executed to reach a position.
+     */
+    private static final int MAX_PLIES = 30;
+
+    private Corpus() {
+    }
+
+    /**
+     * Generates the positions of the corpus. The same seed always generates
+     * the same positions.
+     *
+     * @param seed The seed of the random moves.
+     * @param count The number of positions to generate.
+     * @return The generated positions.
+     */
+    public static List<BoardImpl> generate(long seed, int count) {
+        return generate(seed, count, GEOMETRIES);
+    }
+
+    /**
+     * Generates positions of a single geometry. The same seed always generates
+     * the same positions.
+     *
+     * @param seed The seed of the random moves.
+     * @param count The number of positions to generate.
+     * @param pitsPerPlayer The number of pits per player.
+     * @param seedsPerPit The initial number of seeds per pit.
+     * @return The generated positions.
+     */
+    public static List<BoardImpl> generate(long seed, int count,
+        int pitsPerPlayer, int seedsPerPit) {
+        return generate(seed, count,
+            new int[][] {{pitsPerPlayer, seedsPerPit}});
+    }
+
+    /**
+     * Generates positions, cycling through the given geometries.
+     *
+     * @param seed The seed of the random moves.
+     * @param count The number of positions to generate.
+     * @param geometries Pairs of pits per player and seeds per pit.
+     * @return The generated positions.
+     */
+    private static List<BoardImpl> generate(long seed, int count,
+        int[][] geometries) {
+        Random random = new Random(seed);
+        List<BoardImpl> positions = new ArrayList<>();
+        UndoRecord record = new UndoRecord();
+
+        while (positions.size() < count) {
+            int[] geometry = geometries[positions.size() % geometries.length];
+            Player openingPlayer =
+                random.nextBoolean() ? Player.HUMAN : Player.MACHINE;
+            BoardImpl board =
+                new BoardImpl(openingPlayer, geometry[0], geometry[1], 1);
+
+            int plies = random.nextInt(MAX_PLIES + 1);
+            for (int i = 0; i < plies && !board.isGameOver(); i++) {
+                board.applyMove(randomPit(board, random), record);
+            }
+
+            if (!board.isGameOver()) {
+                positions.add(board);
+            }
+        }
+
+        return positions;
+    }
+
+    /**
+     * Chooses a random non-empty pit of the player on turn.
+     *
+     * @param board The board to choose the pit on.
+     * @param random The source of randomness.
+     * @return The number of the chosen pit.
+     */
+    static int randomPit(BoardImpl board, Random random) {
+        int pitsPerPlayer = board.getPitsPerPlayer();
+        int firstPit = 1;
+        if (board.getOpeningPlayer() == Player.MACHINE) {
+            firstPit = pitsPerPlayer + 2;
+        }
+
+        int pit;
+        do {
+            pit = firstPit + random.nextInt(pitsPerPlayer);
+        } while (board.getSeeds(pit) == 0);
+
+        return pit;
+    }
+
+}
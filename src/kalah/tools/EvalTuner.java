@@ -0,0 +1,432 @@
+package kalah.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.IntStream;
+import kalah.model.Board;
+import kalah.model.BoardImpl;
+import kalah.model.EvalParams;
+import kalah.model.Player;
+
+/**
+ * Fits the weights of the {@link EvalParams} to the outcomes of games in the
+ * style of Texel's tuning method. Every position of the games, except the
+ * final ones, is a sample whose features, see {@link BoardImpl#getFeatures()},
+ * should predict the outcome: the probability of a victory of the machine is
+ * modelled as {@code 1 / (1 + exp(-k * score))}, where the score is the local
+ * score of the position, with a tie counting as half a victory.
+ *
+ * First the scale {@code k} is fitted to the starting weights, which keeps
+ * the tuned weights in the units of the victory scores. Then the weights are
+ * fitted by logistic regression, minimizing the cross-entropy of the
+ * predictions with Newton's method. A small ridge term pulls the weights
+ * towards the starting ones, so that features which hardly ever occur keep
+ * their weights. The sums over the samples are calculated in parallel. The
+ * threshold of the empty pits and the victory scores are no linear weights
+ * and keep their starting values.
+ *
+ * The games are read from a log written by {@link Tournament}.
+ *
+ * Usage: {@code EvalTuner <log> <output parameters> [<start parameters>]}
+ */
+public final class EvalTuner {
+
+    private static final int MAX_ITERATIONS = 50;
+    private static final double RIDGE = 1e-4;
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * The number of samples summed up by a single task.
+     */
+    private static final int CHUNK_SIZE = 4096;
+
+    private final double[] features;
+    private final double[] results;
+    private final int samples;
+
+    /**
+     * Instantiates a new {@link EvalTuner} object.
+     *
+     * @param features The features of all samples, {@link EvalParams#FEATURES}
+     *        values per sample.
+     * @param results The outcome of every sample, {@code 1} for a victory of
+     *        the machine, {@code 0.5} for a tie and {@code 0} for a defeat.
+     * @param samples The number of samples.
+     */
+    private EvalTuner(double[] features, double[] results, int samples) {
+        this.features = features;
+        this.results = results;
+        this.samples = samples;
+    }
+
+    /**
+     * Tunes the weights and writes the parameters.
+     *
+     * @param args The path of the log, of the tuned parameters and optionally
+     *        of the starting parameters.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.out.println("Usage: EvalTuner <log> <output parameters> "
+                + "[<start parameters>]");
+            System.exit(2);
+        }
+        EvalParams start = args.length > 2
+            ? EvalParams.read(Paths.get(args[2])) : EvalParams.DEFAULT;
+
+        long begin = System.nanoTime();
+        EvalTuner tuner = load(args[0], start);
+        if (tuner.samples == 0) {
+            System.out.println("Error! The log holds no positions.");
+            System.exit(1);
+        }
+        double[] startWeights = start.getWeights();
+        double scale = tuner.fitScale(startWeights);
+        double startLoss = tuner.sums(startWeights, scale, startWeights,
+            false).loss;
+        double[] weights = tuner.fitWeights(startWeights, scale);
+        double loss = tuner.sums(weights, scale, startWeights, false).loss;
+
+        System.out.format(Locale.ROOT, "%d positions, k = %.6f%n",
+            tuner.samples, scale);
+        System.out.format(Locale.ROOT, "%-18s %10s %10s%n", "weight", "start",
+            "tuned");
+        for (int i = 0; i < EvalParams.FEATURES; i++) {
+            System.out.format(Locale.ROOT, "%-18s %10.4f %10.4f%n",
+                EvalParams.FEATURE_NAMES[i], startWeights[i], weights[i]);
+        }
+        System.out.format(Locale.ROOT, "%-18s %10.6f %10.6f%n", "loss",
+            startLoss, loss);
+        System.out.format(Locale.ROOT, "%.1f s%n",
+            (System.nanoTime() - begin) / 1e9);
+
+        start.withWeights(weights).write(Paths.get(args[1]));
+    }
+
+    /**
+     * Replays the games of a log and collects their positions.
+     *
+     * @param log The path of the log.
+     * @param params The parameters whose threshold of the empty pits
+     *        defines the features.
+     * @return The tuner with the samples.
+     * @throws IOException If the log cannot be read or is malformed.
+     */
+    private static EvalTuner load(String log, EvalParams params)
+        throws IOException {
+        double[] features = new double[EvalParams.FEATURES * 1024];
+        double[] results = new double[1024];
+        int samples = 0;
+
+        try (BufferedReader reader =
+            Files.newBufferedReader(Paths.get(log))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] tokens = line.trim().split("\\s+");
+
+                Board board;
+                double result;
+                try {
+                    String[] size = tokens[0].split("x");
+                    BoardImpl initial = new BoardImpl(
+                        Player.valueOf(tokens[1]), Integer.parseInt(size[0]),
+                        Integer.parseInt(size[1]), 1);
+                    initial.setEvalParams(params);
+                    board = initial;
+                    result = result(Player.valueOf(tokens[2]));
+                } catch (IllegalArgumentException
+                    | ArrayIndexOutOfBoundsException e) {
+                    throw new IOException("Malformed game in line "
+                        + lineNumber + " of " + log, e);
+                }
+
+                // The final position is no sample, its score is a victory.
+                for (int i = 3; !board.isGameOver(); i++) {
+                    if (samples == results.length) {
+                        results = Arrays.copyOf(results, 2 * samples);
+                        features = Arrays.copyOf(features,
+                            2 * samples * EvalParams.FEATURES);
+                    }
+                    int[] sample = ((BoardImpl) board).getFeatures();
+                    for (int j = 0; j < EvalParams.FEATURES; j++) {
+                        features[samples * EvalParams.FEATURES + j] =
+                            sample[j];
+                    }
+                    results[samples++] = result;
+
+                    if (i == tokens.length) {
+                        break;
+                    }
+                    try {
+                        board = board.play(Integer.parseInt(tokens[i]));
+                    } catch (NumberFormatException e) {
+                        board = null;
+                    }
+                    if (board == null) {
+                        throw new IOException("Illegal move in line "
+                            + lineNumber + " of " + log);
+                    }
+                }
+            }
+        }
+
+        return new EvalTuner(features, results, samples);
+    }
+
+    /**
+     * Converts the winner of a game into the outcome for the machine.
+     *
+     * @param winner The winner.
+     * @return {@code 1} for the machine, {@code 0} for the human and
+     *         {@code 0.5} for a tie.
+     */
+    private static double result(Player winner) {
+        if (winner == Player.MACHINE) {
+            return 1;
+        } else if (winner == Player.HUMAN) {
+            return 0;
+        } else {
+            return 0.5;
+        }
+    }
+
+    /**
+     * Finds the scale of the scores with the least loss by a golden section
+     * search over its logarithm.
+     *
+     * @param weights The weights of the features.
+     * @return The scale.
+     */
+    private double fitScale(double[] weights) {
+        double ratio = (Math.sqrt(5) - 1) / 2;
+        double low = Math.log(1e-6);
+        double high = Math.log(10);
+        for (int i = 0; i < 100; i++) {
+            double left = high - ratio * (high - low);
+            double right = low + ratio * (high - low);
+            if (sums(weights, Math.exp(left), weights, false).loss
+                < sums(weights, Math.exp(right), weights, false).loss) {
+                high = right;
+            } else {
+                low = left;
+            }
+        }
+
+        return Math.exp((low + high) / 2);
+    }
+
+    /**
+     * Fits the weights by Newton's method with a fixed scale. Steps which do
+     * not lower the loss are halved until they do.
+     *
+     * @param startWeights The starting weights.
+     * @param scale The scale of the scores.
+     * @return The tuned weights.
+     */
+    private double[] fitWeights(double[] startWeights, double scale) {
+        double[] weights = startWeights.clone();
+        Sums sums = sums(weights, scale, startWeights, true);
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double[] step = solve(sums.hessian, sums.gradient);
+
+            double factor = 1;
+            double[] candidate = new double[EvalParams.FEATURES];
+            Sums candidateSums;
+            do {
+                for (int i = 0; i < EvalParams.FEATURES; i++) {
+                    candidate[i] = weights[i] - factor * step[i];
+                }
+                candidateSums = sums(candidate, scale, startWeights, true);
+                factor /= 2;
+            } while (candidateSums.loss > sums.loss && factor > TOLERANCE);
+            if (candidateSums.loss > sums.loss) {
+                break;
+            }
+
+            double improvement = sums.loss - candidateSums.loss;
+            weights = candidate.clone();
+            sums = candidateSums;
+            if (improvement < TOLERANCE) {
+                break;
+            }
+        }
+
+        return weights;
+    }
+
+    /**
+     * Calculates the mean loss of all samples and optionally its gradient
+     * and Hessian matrix with respect to the weights, in parallel chunks.
+     *
+     * @param weights The weights of the features.
+     * @param scale The scale of the scores.
+     * @param startWeights The starting weights of the ridge term.
+     * @param derivatives Whether to calculate the gradient and Hessian.
+     * @return The sums.
+     */
+    private Sums sums(double[] weights, double scale, double[] startWeights,
+        boolean derivatives) {
+        int chunks = (samples + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Sums sums = IntStream.range(0, chunks).parallel()
+            .mapToObj(chunk -> chunk(chunk, weights, scale, derivatives))
+            .reduce(Sums::add).orElseGet(Sums::new);
+
+        sums.loss /= samples;
+        for (int i = 0; i < EvalParams.FEATURES; i++) {
+            double deviation = weights[i] - startWeights[i];
+            sums.loss += RIDGE * deviation * deviation;
+            sums.gradient[i] = sums.gradient[i] / samples
+                + 2 * RIDGE * deviation;
+            for (int j = 0; j < EvalParams.FEATURES; j++) {
+                sums.hessian[i][j] /= samples;
+            }
+            sums.hessian[i][i] += 2 * RIDGE;
+        }
+
+        return sums;
+    }
+
+    /**
+     * Sums up the loss and its derivatives of a chunk of samples.
+     *
+     * @param chunk The number of the chunk.
+     * @param weights The weights of the features.
+     * @param scale The scale of the scores.
+     * @param derivatives Whether to calculate the gradient and Hessian.
+     * @return The sums of the chunk.
+     */
+    private Sums chunk(int chunk, double[] weights, double scale,
+        boolean derivatives) {
+        Sums sums = new Sums();
+        int end = Math.min(samples, (chunk + 1) * CHUNK_SIZE);
+        for (int sample = chunk * CHUNK_SIZE; sample < end; sample++) {
+            int offset = sample * EvalParams.FEATURES;
+            double score = 0;
+            for (int i = 0; i < EvalParams.FEATURES; i++) {
+                score += weights[i] * features[offset + i];
+            }
+
+            // The cross-entropy log(1 + exp(z)) - y * z, computed without
+            // overflow for large scores.
+            double z = scale * score;
+            double result = results[sample];
+            sums.loss += (z > 0 ? z + Math.log1p(Math.exp(-z))
+                : Math.log1p(Math.exp(z))) - result * z;
+            if (!derivatives) {
+                continue;
+            }
+
+            double prediction = 1 / (1 + Math.exp(-z));
+            double error = scale * (prediction - result);
+            double curvature = scale * scale * prediction * (1 - prediction);
+            for (int i = 0; i < EvalParams.FEATURES; i++) {
+                double feature = features[offset + i];
+                sums.gradient[i] += error * feature;
+                for (int j = 0; j <= i; j++) {
+                    sums.hessian[i][j] += curvature * feature
+                        * features[offset + j];
+                }
+            }
+        }
+
+        // Only the lower triangle has been summed up.
+        for (int i = 0; i < EvalParams.FEATURES; i++) {
+            for (int j = 0; j < i; j++) {
+                sums.hessian[j][i] = sums.hessian[i][j];
+            }
+        }
+
+        return sums;
+    }
+
+    /**
+     * Solves a linear system by Gaussian elimination with partial pivoting.
+     *
+     * @param matrix The matrix, which is not changed.
+     * @param vector The right-hand side, which is not changed.
+     * @return The solution.
+     */
+    private static double[] solve(double[][] matrix, double[] vector) {
+        int n = vector.length;
+        double[][] a = new double[n][];
+        double[] b = vector.clone();
+        for (int i = 0; i < n; i++) {
+            a[i] = matrix[i].clone();
+        }
+
+        for (int column = 0; column < n; column++) {
+            int pivot = column;
+            for (int row = column + 1; row < n; row++) {
+                if (Math.abs(a[row][column]) > Math.abs(a[pivot][column])) {
+                    pivot = row;
+                }
+            }
+            double[] rowSwap = a[column];
+            a[column] = a[pivot];
+            a[pivot] = rowSwap;
+            double valueSwap = b[column];
+            b[column] = b[pivot];
+            b[pivot] = valueSwap;
+
+            for (int row = column + 1; row < n; row++) {
+                double factor = a[row][column] / a[column][column];
+                for (int k = column; k < n; k++) {
+                    a[row][k] -= factor * a[column][k];
+                }
+                b[row] -= factor * b[column];
+            }
+        }
+
+        double[] solution = new double[n];
+        for (int row = n - 1; row >= 0; row--) {
+            double sum = b[row];
+            for (int k = row + 1; k < n; k++) {
+                sum -= a[row][k] * solution[k];
+            }
+            solution[row] = sum / a[row][row];
+        }
+
+        return solution;
+    }
+
+    /**
+     * The loss of a set of samples and its derivatives with respect to the
+     * weights.
+     */
+    private static final class Sums {
+
+        private double loss;
+        private final double[] gradient = new double[EvalParams.FEATURES];
+        private final double[][] hessian =
+            new double[EvalParams.FEATURES][EvalParams.FEATURES];
+
+        /**
+         * Adds the sums of other samples to these.
+         *
+         * @param other The other sums.
+         * @return These sums.
+         */
+        Sums add(Sums other) {
+            loss += other.loss;
+            for (int i = 0; i < EvalParams.FEATURES; i++) {
+                gradient[i] += other.gradient[i];
+                for (int j = 0; j < EvalParams.FEATURES; j++) {
+                    hessian[i][j] += other.hessian[i][j];
+                }
+            }
+            return this;
+        }
+
+    }
+
+}
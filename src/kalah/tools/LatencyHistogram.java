@@ -0,0 +1,134 @@
+package kalah.tools;
+
+/**
+ * A histogram of latencies in the manner of HdrHistogram, i.e., with buckets
+ * whose width grows with the value, so that every recorded value is known up
+ * to a relative error of less than 1/64 from 1 nanosecond to centuries with
+ * a fixed amount of memory. Recording is a few shifts and an increment.
+ *
+ * The values below 128 have a bucket each. Above, every power of two is split
+ * into 64 buckets of equal width. A histogram is not thread-safe; every thread
+ * records into its own, which are added up at the end.
+ */
+final class LatencyHistogram {
+
+    /**
+     * The number of buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 64;
+
+    /**
+     * The binary logarithm of {@link #SUB_BUCKETS}.
+     */
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private final long[] counts =
+        new long[(Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS];
+    private long count;
+    private long max;
+    private double sum;
+
+    /**
+     * Records a value.
+     *
+     * @param value The latency, e.g., in nanoseconds, at least {@code 0}.
+     */
+    void record(long value) {
+        counts[bucket(value)]++;
+        count++;
+        max = Math.max(max, value);
+        sum += value;
+    }
+
+    /**
+     * Adds all values recorded by another histogram.
+     *
+     * @param other The histogram to add.
+     */
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+        sum += other.sum;
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return The number of values.
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the largest recorded value exactly.
+     *
+     * @return The maximum, {@code 0} if nothing has been recorded.
+     */
+    long getMax() {
+        return max;
+    }
+
+    /**
+     * Calculates the mean of the recorded values exactly.
+     *
+     * @return The mean, {@code 0} if nothing has been recorded.
+     */
+    double getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * Calculates the value below or at which a given share of the recorded
+     * values lies.
+     *
+     * @param percentile The share in percent, from 0 to 100.
+     * @return The largest value of the bucket holding the percentile, but at
+     *         most the maximum, {@code 0} if nothing has been recorded.
+     */
+    long getValueAtPercentile(double percentile) {
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Calculates the bucket of a value.
+     *
+     * @param value The value.
+     * @return The index of the bucket.
+     */
+    private static int bucket(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) Math.max(value, 0);
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value)
+            - SUB_BUCKET_BITS - 1;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Calculates the largest value of a bucket.
+     *
+     * @param bucket The index of the bucket.
+     * @return The largest value which falls into the bucket.
+     */
+    private static long highestValue(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket - shift * SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+}
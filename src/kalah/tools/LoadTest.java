@@ -0,0 +1,659 @@
+package kalah.tools;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import kalah.minimax.SearchCache;
+import kalah.minimax.SearchMode;
+import kalah.model.Board;
+import kalah.model.BoardImpl;
+import kalah.model.Player;
+import kalah.server.GameServer;
+
+/**
+ * Measures how many games the engine sustains at the same time. Every
+ * simulated player runs in its own thread and plays game after game as the
+ * human with random legal moves, on a random board size with a random level
+ * out of the given ones. The latency of a move is the time from the move of
+ * the player to the board after all replies of the machine.
+ *
+ * The players either drive {@link Board#move(int)} and
+ * {@link Board#machineMove()} directly in this process, or speak the protocol
+ * of a {@link GameServer} on the loopback interface. That server is either
+ * started in this process with {@code --serve} or already running on the port
+ * given by {@code --connect}.
+ *
+ * Every interval, the tool prints the moves per second, the used heap and
+ * the collections of the garbage collectors with their accumulated time in
+ * this process. At the end, it prints the throughput and the percentiles of
+ * the latency from a {@link LatencyHistogram}. With {@code --cache}, all games
+ * in this process share a {@link SearchCache} of the given number of entries,
+ * whose hit rate is printed as well.
+ *
+ * Usage: {@code LoadTest [--players <n>] [--duration <s>] [--levels
+ * <i>,...] [--sizes <pits>x<seeds>,...] [--think <ms>] [--interval <s>]
+ * [--seed <n>] [--cache <entries>] [--serve | --connect <port>]} with 16
+ * players for 10 seconds
+ * on the levels 2,4,6 and the boards 6x4,4x3 without think time by default.
+ */
+public final class LoadTest {
+
+    /**
+     * The size of the transposition table of each game played in this
+     * process, small enough for thousands of games.
+     */
+    private static final int TABLE_SIZE_MB = 1;
+
+    /**
+     * The time to wait before a search refused by a busy server is retried.
+     */
+    private static final long RETRY_MILLIS = 10;
+
+    /**
+     * The percentiles of the latency which are printed.
+     */
+    private static final double[] PERCENTILES =
+        {50, 75, 90, 95, 99, 99.9, 100};
+
+    private final int[] levels;
+    private final int[][] sizes;
+    private final long thinkMillis;
+    private final int port;
+    private final SearchCache cache;
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder games = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private volatile boolean stopped;
+
+    /**
+     * Instantiates a new {@link LoadTest} object.
+     *
+     * @param levels The levels of the machine to choose from.
+     * @param sizes The pits per player and seeds per pit of the boards to
+     *        choose from.
+     * @param thinkMillis The time a player waits before each move.
+     * @param port The port of the server on the loopback interface,
+     *        {@code 0} to play in this process.
+     * @param cache The cache of the games in this process, {@code null} for
+     *        none.
+     */
+    private LoadTest(int[] levels, int[][] sizes, long thinkMillis, int port,
+        SearchCache cache) {
+        this.levels = levels;
+        this.sizes = sizes;
+        this.thinkMillis = thinkMillis;
+        this.port = port;
+        this.cache = cache;
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args The options.
+     * @throws IOException If the server cannot be started.
+     * @throws InterruptedException If interrupted while waiting for the
+     *         players.
+     */
+    public static void main(String[] args)
+        throws IOException, InterruptedException {
+        int players = 16;
+        int duration = 10;
+        int[] levels = {2, 4, 6};
+        int[][] sizes = {{6, 4}, {4, 3}};
+        long think = 0;
+        int interval = 1;
+        long seed = 42;
+        int port = 0;
+        SearchCache cache = null;
+        boolean serve = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "--players":
+                players = Integer.parseInt(args[++i]);
+                break;
+            case "--duration":
+                duration = Integer.parseInt(args[++i]);
+                break;
+            case "--levels":
+                String[] levelList = args[++i].split(",");
+                levels = new int[levelList.length];
+                for (int j = 0; j < levels.length; j++) {
+                    levels[j] = Integer.parseInt(levelList[j]);
+                }
+                break;
+            case "--sizes":
+                String[] sizeList = args[++i].split(",");
+                sizes = new int[sizeList.length][];
+                for (int j = 0; j < sizes.length; j++) {
+                    String[] size = sizeList[j].split("x");
+                    sizes[j] = new int[] {Integer.parseInt(size[0]),
+                        Integer.parseInt(size[1])};
+                }
+                break;
+            case "--think":
+                think = Long.parseLong(args[++i]);
+                break;
+            case "--interval":
+                interval = Integer.parseInt(args[++i]);
+                break;
+            case "--seed":
+                seed = Long.parseLong(args[++i]);
+                break;
+            case "--cache":
+                cache = new SearchCache(Integer.parseInt(args[++i]));
+                cache.register();
+                break;
+            case "--serve":
+                serve = true;
+                break;
+            case "--connect":
+                port = Integer.parseInt(args[++i]);
+                break;
+            default:
+                System.out.println("Usage: LoadTest [--players <n>] "
+                    + "[--duration <s>] [--levels <i>,...] [--sizes "
+                    + "<pits>x<seeds>,...] [--think <ms>] [--interval <s>] "
+                    + "[--seed <n>] [--cache <entries>] [--serve | "
+                    + "--connect <port>]");
+                System.exit(2);
+            }
+        }
+
+        GameServer server = null;
+        if (serve) {
+            server = new GameServer(0);
+            server.setMaxSessions(Integer.MAX_VALUE);
+            server.setTableSize(TABLE_SIZE_MB);
+            server.setSearchCache(cache);
+            server.start();
+            port = server.getPort();
+        }
+
+        LoadTest test = new LoadTest(levels, sizes, think, port, cache);
+        try {
+            test.run(players, duration, interval, seed);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    /**
+     * Lets the players play for the given time and prints the report.
+     *
+     * @param playerCount The number of players.
+     * @param duration The time to play in seconds.
+     * @param interval The time between two samples in seconds.
+     * @param seed The seed of the random choices of the players.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private void run(int playerCount, int duration, int interval, long seed)
+        throws InterruptedException {
+        List<PlayerThread> players = new ArrayList<>();
+        for (int i = 0; i < playerCount; i++) {
+            PlayerThread player = new PlayerThread(new Random(seed + i));
+            player.setDaemon(true);
+            players.add(player);
+        }
+
+        System.out.format(Locale.ROOT, "%d players on %s for %d s%n",
+            playerCount, port == 0 ? "boards in this process"
+                : "the server on port " + port, duration);
+        long start = System.nanoTime();
+        for (PlayerThread player : players) {
+            player.start();
+        }
+
+        long lastMoves = 0;
+        long lastCollections = collections();
+        long lastCollectionMillis = collectionMillis();
+        long maxHeap = 0;
+        for (int second = interval; second <= duration; second += interval) {
+            Thread.sleep(Math.max(0, start + second * 1_000_000_000L
+                - System.nanoTime()) / 1_000_000);
+            long currentMoves = moves.sum();
+            long heap = ManagementFactory.getMemoryMXBean()
+                .getHeapMemoryUsage().getUsed();
+            maxHeap = Math.max(maxHeap, heap);
+            long currentCollections = collections();
+            long currentCollectionMillis = collectionMillis();
+            System.out.format(Locale.ROOT, "%5d s %8.1f moves/s  heap %6.1f "
+                + "MB  gc %3d collections %5d ms%n", second,
+                (currentMoves - lastMoves) / (double) interval,
+                heap / 1048576.0, currentCollections - lastCollections,
+                currentCollectionMillis - lastCollectionMillis);
+            lastMoves = currentMoves;
+            lastCollections = currentCollections;
+            lastCollectionMillis = currentCollectionMillis;
+        }
+
+        stopped = true;
+        LatencyHistogram latencies = new LatencyHistogram();
+        for (PlayerThread player : players) {
+            player.join();
+            latencies.add(player.latencies);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        report(latencies, seconds, maxHeap);
+    }
+
+    /**
+     * Prints the totals and the percentiles of the latency.
+     *
+     * @param latencies The latencies of all moves in nanoseconds.
+     * @param seconds The time the test took.
+     * @param maxHeap The most heap used at a sample in bytes.
+     */
+    private void report(LatencyHistogram latencies, double seconds,
+        long maxHeap) {
+        System.out.format(Locale.ROOT, "%d moves in %d games, %.1f moves/s, "
+            + "%.2f games/s, %d retries, %d errors%n", moves.sum(),
+            games.sum(), moves.sum() / seconds, games.sum() / seconds,
+            retries.sum(), errors.sum());
+        System.out.format(Locale.ROOT, "peak heap %.1f MB, gc %d collections "
+            + "%d ms%n", maxHeap / 1048576.0, collections(),
+            collectionMillis());
+        if (cache != null) {
+            System.out.format(Locale.ROOT, "cache %d hits, %d misses, %.1f%% "
+                + "hit rate, %d entries%n", cache.getHits(),
+                cache.getMisses(), cache.getHitRate() * 100,
+                cache.getSize());
+        }
+        System.out.format(Locale.ROOT, "latency mean %.3f ms%n",
+            latencies.getMean() / 1e6);
+        for (double percentile : PERCENTILES) {
+            System.out.format(Locale.ROOT, "  p%-5s %10.3f ms%n",
+                percentile == (int) percentile
+                    ? String.valueOf((int) percentile)
+                    : String.valueOf(percentile),
+                latencies.getValueAtPercentile(percentile) / 1e6);
+        }
+    }
+
+    /**
+     * Gets the number of collections of all garbage collectors so far.
+     *
+     * @return The number of collections.
+     */
+    private static long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector
+            : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(collector.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the accumulated time of all garbage collectors so far, which
+     * approximates the pauses.
+     *
+     * @return The time in milliseconds.
+     */
+    private static long collectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector
+            : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(collector.getCollectionTime(), 0);
+        }
+        return millis;
+    }
+
+    /**
+     * A player who plays games until the test is stopped.
+     */
+    private final class PlayerThread extends Thread {
+
+        private final Random random;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        /**
+         * Instantiates a new {@link PlayerThread} object.
+         *
+         * @param random The source of the choices of this player.
+         */
+        private PlayerThread(Random random) {
+            this.random = random;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run() {
+            Table table = null;
+            try {
+                while (!stopped) {
+                    if (table == null) {
+                        table = port == 0 ? new LocalTable(cache)
+                            : new RemoteTable(port);
+                    }
+                    if (!play(table)) {
+                        table.close();
+                        table = null;
+                    }
+                }
+            } catch (IOException e) {
+                errors.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (table != null) {
+                    try {
+                        table.close();
+                    } catch (IOException e) {
+                        errors.increment();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Plays a game until it is over or the test is stopped.
+         *
+         * @param table The table to play on.
+         * @return {@code false} if the table cannot be used for another game.
+         * @throws IOException If the connection to the server fails.
+         * @throws InterruptedException If interrupted while thinking.
+         */
+        private boolean play(Table table)
+            throws IOException, InterruptedException {
+            int[] size = sizes[random.nextInt(sizes.length)];
+            int pitsPerPlayer = size[0];
+            int level = levels[random.nextInt(levels.length)];
+            Position state = table.newGame(level, pitsPerPlayer, size[1]);
+            while (state.error == 0 && !state.over && !stopped) {
+                if (thinkMillis > 0) {
+                    Thread.sleep(thinkMillis);
+                }
+                int pit = randomMove(state.pits, pitsPerPlayer);
+                long start = System.nanoTime();
+                Position next = table.move(pit);
+                if (next.error == 502) {
+                    retries.increment();
+                    Thread.sleep(RETRY_MILLIS);
+                    continue;
+                }
+                latencies.record(System.nanoTime() - start);
+                moves.increment();
+                state = next;
+            }
+
+            if (state.error != 0) {
+                errors.increment();
+                return false;
+            } else if (state.over) {
+                games.increment();
+            }
+            return true;
+        }
+
+        /**
+         * Chooses a random legal move of the human.
+         *
+         * @param pits The seeds of all pits, indexed by the pit number minus
+         *        one.
+         * @param pitsPerPlayer The number of pits per player.
+         * @return The pit number of the move.
+         */
+        private int randomMove(int[] pits, int pitsPerPlayer) {
+            int legal = 0;
+            for (int pit = 1; pit <= pitsPerPlayer; pit++) {
+                legal += pits[pit - 1] > 0 ? 1 : 0;
+            }
+            int choice = random.nextInt(legal);
+            for (int pit = 1; pit <= pitsPerPlayer; pit++) {
+                if (pits[pit - 1] > 0 && choice-- == 0) {
+                    return pit;
+                }
+            }
+            throw new IllegalStateException("Error! No legal move.");
+        }
+
+    }
+
+    /**
+     * The board of a game as a player sees it after each move.
+     */
+    private static final class Position {
+
+        private final int[] pits;
+        private final boolean over;
+        private final int error;
+
+        /**
+         * Instantiates a new {@link Position} object.
+         *
+         * @param pits The seeds of all pits, indexed by the pit number minus
+         *        one.
+         * @param over {@code true} if the game is over.
+         * @param error The error code of the move, {@code 0} for none.
+         */
+        private Position(int[] pits, boolean over, int error) {
+            this.pits = pits;
+            this.over = over;
+            this.error = error;
+        }
+
+    }
+
+    /**
+     * Where a player plays its games.
+     */
+    private interface Table extends Closeable {
+
+        /**
+         * Starts a new game, which the player opens.
+         *
+         * @param level The level of the machine.
+         * @param pitsPerPlayer The number of pits per player.
+         * @param seedsPerPit The initial number of seeds per pit.
+         * @return The initial board.
+         * @throws IOException If the connection to the server fails.
+         */
+        Position newGame(int level, int pitsPerPlayer, int seedsPerPit)
+            throws IOException;
+
+        /**
+         * Executes a legal move of the player and all replies of the machine.
+         *
+         * @param pit The pit number of the move.
+         * @return The board when the player is on turn again or the game is
+         *         over.
+         * @throws IOException If the connection to the server fails.
+         */
+        Position move(int pit) throws IOException;
+
+    }
+
+    /**
+     * Plays on a board in this process.
+     */
+    private static final class LocalTable implements Table {
+
+        private final SearchCache cache;
+        private Board board;
+
+        /**
+         * Instantiates a new {@link LocalTable} object.
+         *
+         * @param cache The cache of the machine's moves, {@code null} for
+         *        none.
+         */
+        private LocalTable(SearchCache cache) {
+            this.cache = cache;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Position newGame(int level, int pitsPerPlayer, int seedsPerPit) {
+            BoardImpl newBoard = new BoardImpl(Player.HUMAN, pitsPerPlayer,
+                seedsPerPit, level);
+            newBoard.setTranspositionTable(
+                SearchMode.ALPHA_BETA.createTable(TABLE_SIZE_MB));
+            newBoard.setSearchCache(cache);
+            board = newBoard;
+            return state();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Position move(int pit) {
+            board = board.move(pit);
+            while (board.getOpeningPlayer() == Player.MACHINE
+                && !board.isGameOver()) {
+                board = board.machineMove();
+            }
+            return state();
+        }
+
+        /**
+         * Gets the state of the board.
+         *
+         * @return The state.
+         */
+        private Position state() {
+            int[] pits = new int[(board.getPitsPerPlayer() + 1) * 2];
+            for (int pit = 1; pit <= pits.length; pit++) {
+                pits[pit - 1] = board.getSeeds(pit);
+            }
+            return new Position(pits, board.isGameOver(), 0);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() {
+            board = null;
+        }
+
+    }
+
+    /**
+     * Plays in a session of a server on the loopback interface, which may
+     * answer in either of its formats.
+     */
+    private static final class RemoteTable implements Table {
+
+        private static final Pattern JSON_ERROR =
+            Pattern.compile("\"code\":(\\d+)");
+        private static final Pattern JSON_PITS =
+            Pattern.compile("\"pits\":\\[([\\d,]*)\\]");
+        private static final Pattern COMPACT_ERROR =
+            Pattern.compile("^\\d+ error (\\d+)");
+        private static final Pattern COMPACT_PITS =
+            Pattern.compile(" board ([\\d,]+)");
+
+        private final Socket socket;
+        private final BufferedReader reader;
+        private final Writer writer;
+
+        /**
+         * Instantiates a new {@link RemoteTable} object, which opens a
+         * session.
+         *
+         * @param port The port of the server.
+         * @throws IOException If the server cannot be reached.
+         */
+        private RemoteTable(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+            reader = new BufferedReader(new InputStreamReader(
+                socket.getInputStream(), StandardCharsets.UTF_8));
+            writer = new OutputStreamWriter(socket.getOutputStream(),
+                StandardCharsets.UTF_8);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * Both commands are sent in one batch.
+         */
+        @Override
+        public Position newGame(int level, int pitsPerPlayer, int seedsPerPit)
+            throws IOException {
+            writer.write("level " + level + "\nnew " + pitsPerPlayer + " "
+                + seedsPerPit + "\n");
+            writer.flush();
+            Position levelPosition = parse(reader.readLine());
+            Position state = parse(reader.readLine());
+            return levelPosition.error != 0 ? levelPosition : state;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Position move(int pit) throws IOException {
+            writer.write("move " + pit + "\n");
+            writer.flush();
+            return parse(reader.readLine());
+        }
+
+        /**
+         * Reads the board out of a response.
+         *
+         * @param line The response.
+         * @return The state, with error 502 if the server is busy.
+         * @throws IOException If the connection has been closed.
+         */
+        private static Position parse(String line) throws IOException {
+            if (line == null) {
+                throw new IOException("Error! The server closed the "
+                    + "connection.");
+            }
+
+            boolean json = line.startsWith("{");
+            Matcher error =
+                (json ? JSON_ERROR : COMPACT_ERROR).matcher(line);
+            if (error.find()) {
+                return new Position(null, false,
+                    Integer.parseInt(error.group(1)));
+            }
+            Matcher pits = (json ? JSON_PITS : COMPACT_PITS).matcher(line);
+            if (!pits.find()) {
+                return new Position(null, false, 0);
+            }
+            String[] seeds = pits.group(1).split(",");
+            int[] values = new int[seeds.length];
+            for (int i = 0; i < seeds.length; i++) {
+                values[i] = Integer.parseInt(seeds[i]);
+            }
+            boolean over = json ? !line.contains("\"winner\":null")
+                : line.contains(" winner ");
+            return new Position(values, over, 0);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,119 @@
+package kalah.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import kalah.minimax.AlphaBeta;
+import kalah.minimax.ParallelSearch;
+import kalah.model.BoardImpl;
+import kalah.model.Player;
+
+/**
+ * Reports how {@link ParallelSearch} scales with the number of threads on the
+ * standard board with 6 pits per player and 4 seeds per pit. For each level
+ * and number of threads, it searches the initial board with the machine on
+ * turn and the positions of a {@link Corpus} with this geometry, and prints
+ * the median time of several runs, the speedup and efficiency compared to one
+ * thread and the number of visited boards. Every move is checked against the
+ * sequential {@link AlphaBeta} search. Exits with status 1 if any move
+ * differs.
+ *
+ * Usage: {@code ParallelScaling [max threads] [min level] [max level] [runs]}
+ */
+public final class ParallelScaling {
+
+    private static final int PITS_PER_PLAYER = 6;
+    private static final int SEEDS_PER_PIT = 4;
+
+    private ParallelScaling() {
+    }
+
+    /**
+     * Runs the scaling report.
+     *
+     * @param args The optional maximum number of threads, minimum and maximum
+     *        level and number of runs per measurement.
+     */
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0])
+            : Runtime.getRuntime().availableProcessors();
+        int minLevel = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int maxLevel = args.length > 2 ? Integer.parseInt(args[2]) : 9;
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        List<BoardImpl> positions = positions();
+        boolean failed = false;
+
+        System.out.format("%d positions, %d available processors%n",
+            positions.size(), Runtime.getRuntime().availableProcessors());
+        System.out.format("%5s %7s %10s %8s %10s %14s %10s%n", "level",
+            "threads", "ms", "speedup", "efficiency", "nodes", "mismatches");
+        for (int level = minLevel; level <= maxLevel; level++) {
+            AlphaBeta sequential = new AlphaBeta(level);
+            int[] expectedMoves = new int[positions.size()];
+            for (int i = 0; i < positions.size(); i++) {
+                expectedMoves[i] = sequential.bestMove(positions.get(i));
+            }
+
+            double singleMillis = 0;
+            for (int threads = 1; threads <= maxThreads; threads++) {
+                ParallelSearch search = new ParallelSearch(level, threads,
+                    null);
+                double[] millis = new double[runs];
+                long nodes = 0;
+                int mismatches = 0;
+                for (int run = 0; run < runs; run++) {
+                    nodes = 0;
+                    long start = System.nanoTime();
+                    for (int i = 0; i < positions.size(); i++) {
+                        if (search.bestMove(positions.get(i))
+                            != expectedMoves[i]) {
+                            mismatches++;
+                        }
+                        nodes += search.getNodeCount();
+                    }
+                    millis[run] = (System.nanoTime() - start) / 1e6;
+                }
+
+                Arrays.sort(millis);
+                double median = millis[runs / 2];
+                if (threads == 1) {
+                    singleMillis = median;
+                }
+                double speedup = singleMillis / median;
+
+                failed |= mismatches > 0;
+                System.out.format("%5d %7d %10.1f %8.2f %10.2f %14d %10d%n",
+                    level, threads, median, speedup, speedup / threads, nodes,
+                    mismatches);
+            }
+        }
+
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Collects the positions of the report: the initial board with the machine
+     * on turn and the positions of the default corpus on the standard board.
+     *
+     * @return The positions.
+     */
+    private static List<BoardImpl> positions() {
+        List<BoardImpl> positions = new ArrayList<>();
+        positions.add(
+            new BoardImpl(Player.MACHINE, PITS_PER_PLAYER, SEEDS_PER_PIT, 1));
+        for (BoardImpl board : Corpus.generate(42, 200)) {
+            if (board.getPitsPerPlayer() == PITS_PER_PLAYER
+                && board.getSeedsOfPlayer(Player.HUMAN)
+                + board.getSeedsOfPlayer(Player.MACHINE)
+                == PITS_PER_PLAYER * SEEDS_PER_PIT * 2) {
+                positions.add(board);
+            }
+        }
+
+        return positions;
+    }
+
+}
@@ -0,0 +1,295 @@
+package kalah.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import kalah.model.BoardImpl;
+import kalah.model.PackedBoard;
+import kalah.model.Player;
+import kalah.model.UndoRecord;
+
+/**
+ * Counts the positions reachable from the initial board in a number of plies,
+ * as a check that the rules engine still behaves the same and as a benchmark
+ * of raw move generation. A ply is a single sowing, so a move granting an
+ * extra turn is followed by another ply of the same player. Positions where
+ * the game is over before the last ply are no leaves, but are counted
+ * separately. The moves are executed in place by
+ * {@link BoardImpl#applyMove(int, UndoRecord)} and taken back by
+ * {@link BoardImpl#undoMove(UndoRecord)}, or, if the board fits, on a
+ * {@link PackedBoard} per ply.
+ *
+ * Usage: {@code Perft <pits> <seeds> <plies> [human|machine]} prints the
+ * counts for 1 up to the given number of plies, using the packed encoding
+ * whenever the board fits. {@code Perft check [file]} compares the counts of
+ * both encodings against the reference counts in a file, by default the
+ * resource {@value #REFERENCE_RESOURCE} on the class path, i.e., the file
+ * {@code src/tests/perft.txt} of the sources, with lines of the form
+ * {@code <pits> <seeds> <opening player> <plies> <leaves> <game ends>}, and
+ * exits with status 1 if any count differs. A file given as argument is
+ * resolved against the working directory.
+ */
+public final class Perft {
+
+    /**
+     * The class path resource with the reference counts produced by the
+     * original rules engine, so that the check does not depend on the
+     * working directory.
+     */
+    static final String REFERENCE_RESOURCE = "/tests/perft.txt";
+
+    private final UndoRecord[] records;
+    private final PackedBoard[] packedBoards;
+    private long leaves;
+    private long gameEnds;
+    private long nodes;
+
+    /**
+     * Instantiates a new {@link Perft} object.
+     *
+     * @param plies The number of plies to count.
+     */
+    private Perft(int plies) {
+        this.records = new UndoRecord[plies];
+        for (int i = 0; i < plies; i++) {
+            records[i] = new UndoRecord();
+        }
+        this.packedBoards = new PackedBoard[plies + 1];
+    }
+
+    /**
+     * Counts the positions below the initial board of a game.
+     *
+     * @param openingPlayer The player who opens the game.
+     * @param pitsPerPlayer The number of pits per player.
+     * @param seedsPerPit The initial number of seeds per pit.
+     * @param packed {@code true} to use the packed encoding, which the board
+     *        must fit.
+     * @return The elapsed time in nanoseconds.
+     */
+    private long run(Player openingPlayer, int pitsPerPlayer,
+        int seedsPerPit, boolean packed) {
+        BoardImpl board =
+            new BoardImpl(openingPlayer, pitsPerPlayer, seedsPerPit, 1);
+        long start = System.nanoTime();
+        if (packed) {
+            packedBoards[0] = new PackedBoard(board);
+            for (int ply = 1; ply < packedBoards.length; ply++) {
+                packedBoards[ply] = packedBoards[0].copy();
+            }
+            count(0);
+        } else {
+            count(board, 0);
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Runs the count or the check.
+     *
+     * @param args The board size, number of plies and opening player, or
+     *        {@code check} and the optional reference file.
+     * @throws IOException If the reference file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("check")) {
+            if (args.length > 1) {
+                try (BufferedReader reader = Files.newBufferedReader(
+                    Paths.get(args[1]), StandardCharsets.UTF_8)) {
+                    check(reader);
+                }
+                return;
+            }
+
+            InputStream in = Perft.class.getResourceAsStream(
+                REFERENCE_RESOURCE);
+            if (in == null) {
+                System.out.println("Reference counts " + REFERENCE_RESOURCE
+                    + " not found on the class path, use Perft check <file>");
+                System.exit(2);
+            }
+            try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                check(reader);
+            }
+            return;
+        }
+        if (args.length < 3) {
+            System.out.println("Usage: Perft <pits> <seeds> <plies> "
+                + "[human|machine] | Perft check [file]");
+            System.exit(2);
+        }
+
+        int pitsPerPlayer = Integer.parseInt(args[0]);
+        int seedsPerPit = Integer.parseInt(args[1]);
+        int maxPlies = Integer.parseInt(args[2]);
+        Player openingPlayer =
+            args.length > 3 ? parsePlayer(args[3]) : Player.HUMAN;
+        boolean packed = PackedBoard.fits(pitsPerPlayer, seedsPerPit);
+
+        System.out.println(packed ? "Packed encoding" : "Array encoding");
+        System.out.format("%5s %16s %12s %16s %10s %14s%n", "plies", "leaves",
+            "game ends", "nodes", "ms", "nodes/s");
+        for (int plies = 1; plies <= maxPlies; plies++) {
+            Perft perft = new Perft(plies);
+            long elapsed =
+                perft.run(openingPlayer, pitsPerPlayer, seedsPerPit, packed);
+
+            System.out.format("%5d %16d %12d %16d %10.1f %14.0f%n", plies,
+                perft.leaves, perft.gameEnds, perft.nodes, elapsed / 1e6,
+                perft.nodes * 1e9 / Math.max(elapsed, 1));
+        }
+    }
+
+    /**
+     * Compares the counts against the reference counts of a file.
+     *
+     * @param reader The reader of the reference file.
+     * @throws IOException If the file cannot be read.
+     */
+    private static void check(BufferedReader reader) throws IOException {
+        int failures = 0;
+        long totalNodes = 0;
+        long totalNanos = 0;
+        long packedNodes = 0;
+        long packedNanos = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] fields = line.split("\\s+");
+            int pitsPerPlayer = Integer.parseInt(fields[0]);
+            int seedsPerPit = Integer.parseInt(fields[1]);
+            Player openingPlayer = parsePlayer(fields[2]);
+            int plies = Integer.parseInt(fields[3]);
+            long expectedLeaves = Long.parseLong(fields[4]);
+            long expectedGameEnds = Long.parseLong(fields[5]);
+
+            Perft perft = new Perft(plies);
+            totalNanos += perft.run(openingPlayer, pitsPerPlayer,
+                seedsPerPit, false);
+            totalNodes += perft.nodes;
+            String result = perft.compare(expectedLeaves,
+                expectedGameEnds);
+
+            if (PackedBoard.fits(pitsPerPlayer, seedsPerPit)) {
+                Perft packed = new Perft(plies);
+                packedNanos += packed.run(openingPlayer, pitsPerPlayer,
+                    seedsPerPit, true);
+                packedNodes += packed.nodes;
+                result += ", packed "
+                    + packed.compare(expectedLeaves, expectedGameEnds);
+            }
+
+            if (result.contains("FAILED")) {
+                failures++;
+            }
+            System.out.format("%-40s %s%n", line, result);
+        }
+
+        System.out.format("%d nodes, %.0f nodes/s, %d packed nodes, "
+            + "%.0f packed nodes/s, %d failures%n", totalNodes,
+            totalNodes * 1e9 / Math.max(totalNanos, 1), packedNodes,
+            packedNodes * 1e9 / Math.max(packedNanos, 1), failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares the counts against the expected ones.
+     *
+     * @param expectedLeaves The expected number of leaves.
+     * @param expectedGameEnds The expected number of game ends.
+     * @return {@code ok} or a failure message with the actual counts.
+     */
+    private String compare(long expectedLeaves, long expectedGameEnds) {
+        if (leaves == expectedLeaves && gameEnds == expectedGameEnds) {
+            return "ok";
+        }
+
+        return "FAILED: " + leaves + " " + gameEnds;
+    }
+
+    /**
+     * Parses the name of a player.
+     *
+     * @param name {@code human} or {@code machine}, in any case.
+     * @return The player.
+     */
+    private static Player parsePlayer(String name) {
+        return Player.valueOf(name.toUpperCase());
+    }
+
+    /**
+     * Recursively counts the positions below a board.
+     *
+     * @param board The board, which is changed in place and restored.
+     * @param ply The number of plies executed so far.
+     */
+    private void count(BoardImpl board, int ply) {
+        if (ply == records.length) {
+            leaves++;
+            return;
+        }
+        if (board.isGameOver()) {
+            gameEnds++;
+            return;
+        }
+
+        int pitsPerPlayer = board.getPitsPerPlayer();
+        int firstPit = board.getOpeningPlayer() == Player.HUMAN ? 1
+            : pitsPerPlayer + 2;
+        UndoRecord record = records[ply];
+        for (int pit = firstPit; pit < firstPit + pitsPerPlayer; pit++) {
+            if (board.getSeeds(pit) != 0) {
+                nodes++;
+                board.applyMove(pit, record);
+                count(board, ply + 1);
+                board.undoMove(record);
+            }
+        }
+    }
+
+    /**
+     * Recursively counts the positions below the packed board of a ply. The
+     * board of the next ply receives a copy before each move, so no move has
+     * to be taken back.
+     *
+     * @param ply The number of plies executed so far.
+     */
+    private void count(int ply) {
+        if (ply == records.length) {
+            leaves++;
+            return;
+        }
+        PackedBoard board = packedBoards[ply];
+        if (board.isGameOver()) {
+            gameEnds++;
+            return;
+        }
+
+        int pitsPerPlayer = board.getPitsPerPlayer();
+        int firstPit = board.getOpeningPlayer() == Player.HUMAN ? 1
+            : pitsPerPlayer + 2;
+        PackedBoard child = packedBoards[ply + 1];
+        for (int pit = firstPit; pit < firstPit + pitsPerPlayer; pit++) {
+            if (board.getSeeds(pit) != 0) {
+                nodes++;
+                child.copyFrom(board);
+                child.applyMove(pit);
+                count(ply + 1);
+            }
+        }
+    }
+
+}
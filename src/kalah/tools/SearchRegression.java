@@ -0,0 +1,110 @@
+package kalah.tools;
+
+import java.util.List;
+import kalah.minimax.AlphaBeta;
+import kalah.minimax.MoveOrdering;
+import kalah.minimax.ScoreTable;
+import kalah.minimax.Search;
+import kalah.minimax.SearchMode;
+import kalah.model.BoardImpl;
+
+/**
+ * Checks that every {@link SearchMode} picks the same move as the exhaustive
+ * {@link SearchMode#MINIMAX} search on each position of a {@link Corpus}, and
+ * reports the number of visited boards per mode and level. For alpha-beta
+ * searches, the share of expanded boards with a cut-off, the share of cut-offs
+ * caused by the first searched move and the hit rate of the transposition
+ * table are reported as well. Exits with
+ * status 1 if any move differs.
+ *
+ * Usage: {@code SearchRegression [positions] [max level] [seed] [threads]}
+ */
+public final class SearchRegression {
+
+    private SearchRegression() {
+    }
+
+    /**
+     * Runs the regression check.
+     *
+     * @param args The optional number of positions, maximum level, seed and
+     *        number of threads of parallel searches.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int maxLevel = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        int threads = args.length > 3 ? Integer.parseInt(args[3])
+            : Runtime.getRuntime().availableProcessors();
+
+        List<BoardImpl> positions = Corpus.generate(seed, count);
+        boolean failed = false;
+
+        System.out.format("%-12s %5s %14s %14s %8s %8s %8s %8s %10s%n",
+            "mode", "level", "nodes", "minimax nodes", "ratio", "cutoffs",
+            "first", "tt hits", "mismatches");
+        for (int level = 1; level <= maxLevel; level++) {
+            Search reference = SearchMode.MINIMAX.create(level, 1, null);
+            int[] expectedMoves = new int[positions.size()];
+            long referenceNodes = 0;
+            for (int i = 0; i < positions.size(); i++) {
+                expectedMoves[i] = reference.bestMove(positions.get(i));
+                referenceNodes += reference.getNodeCount();
+            }
+
+            for (SearchMode mode : SearchMode.values()) {
+                if (mode == SearchMode.MINIMAX) {
+                    continue;
+                }
+
+                ScoreTable table =
+                    mode.createTable(ScoreTable.DEFAULT_SIZE_MB);
+                Search search = mode.create(level, threads, table);
+                long nodes = 0;
+                long expanded = 0;
+                long cutoffs = 0;
+                long firstMoveCutoffs = 0;
+                int mismatches = 0;
+                for (int i = 0; i < positions.size(); i++) {
+                    if (search.bestMove(positions.get(i))
+                        != expectedMoves[i]) {
+                        mismatches++;
+                    }
+                    nodes += search.getNodeCount();
+
+                    if (search instanceof AlphaBeta) {
+                        MoveOrdering ordering =
+                            ((AlphaBeta) search).getOrdering();
+                        expanded += ordering.getExpandedNodes();
+                        cutoffs += ordering.getCutoffs();
+                        firstMoveCutoffs += ordering.getFirstMoveCutoffs();
+                    }
+                }
+
+                failed |= mismatches > 0;
+                System.out.format(
+                    "%-12s %5d %14d %14d %8.3f %8.3f %8.3f %8.3f %10d%n",
+                    mode, level, nodes, referenceNodes,
+                    (double) nodes / referenceNodes,
+                    share(cutoffs, expanded), share(firstMoveCutoffs, cutoffs),
+                    table.getHitRate(), mismatches);
+            }
+        }
+
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Calculates the share of a part in a total.
+     *
+     * @param part The part.
+     * @param total The total.
+     * @return The share, or {@code 0} if the total is {@code 0}.
+     */
+    private static double share(long part, long total) {
+        return total == 0 ? 0 : (double) part / total;
+    }
+
+}
@@ -0,0 +1,180 @@
+package kalah.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import kalah.minimax.EndgameTablebase;
+import kalah.model.PackedBoard;
+import kalah.model.Player;
+
+/**
+ * Solves every position with at most a given number of seeds left in the
+ * pits and writes the results as an {@link EndgameTablebase} file.
+ *
+ * A move never adds seeds to the pits. If it neither reaches a store nor
+ * captures, all sown seeds stay in the row of the mover and move closer to
+ * her store. So no position can be reached from itself, and the positions
+ * are solved by a depth-first search which stores every result on the way,
+ * i.e., each position is solved exactly once. The moves are executed on
+ * {@link PackedBoard}s, which limits the tables to 7 pits per player.
+ *
+ * Usage: {@code TablebaseGenerator <pits> <max seeds> <file>}
+ */
+public final class TablebaseGenerator {
+
+    private static final byte UNSOLVED = Byte.MIN_VALUE;
+
+    private final EndgameTablebase.Layout layout;
+    private final byte[] results;
+    private final int pitsPerPlayer;
+    private final int humanStore;
+    private final int machineStore;
+
+    /**
+     * Instantiates a new {@link TablebaseGenerator} object.
+     *
+     * @param pitsPerPlayer The number of pits per player.
+     * @param maxSeeds The maximum number of seeds in the pits.
+     */
+    private TablebaseGenerator(int pitsPerPlayer, int maxSeeds) {
+        this.layout = new EndgameTablebase.Layout(pitsPerPlayer, maxSeeds);
+        this.results = new byte[(int) layout.size()];
+        Arrays.fill(results, UNSOLVED);
+        this.pitsPerPlayer = pitsPerPlayer;
+        this.humanStore = pitsPerPlayer + 1;
+        this.machineStore = 2 * pitsPerPlayer + 2;
+    }
+
+    /**
+     * Generates a tablebase file.
+     *
+     * @param args The number of pits per player, the maximum number of seeds
+     *        in the pits and the path of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.out.println(
+                "Usage: TablebaseGenerator <pits> <max seeds> <file>");
+            System.exit(2);
+        }
+        int pitsPerPlayer = Integer.parseInt(args[0]);
+        int maxSeeds = Integer.parseInt(args[1]);
+        if ((pitsPerPlayer + 1) * 2 > PackedBoard.MAX_PITS) {
+            System.out.println("Error! At most "
+                + (PackedBoard.MAX_PITS / 2 - 1) + " pits per player.");
+            System.exit(2);
+        }
+
+        long start = System.nanoTime();
+        TablebaseGenerator generator =
+            new TablebaseGenerator(pitsPerPlayer, maxSeeds);
+        generator.solveAll(new int[2 * pitsPerPlayer + 3], 1, maxSeeds);
+        long elapsed = System.nanoTime() - start;
+
+        try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(Paths.get(args[2])),
+                1 << 16))) {
+            out.writeInt(EndgameTablebase.MAGIC);
+            out.writeInt(pitsPerPlayer);
+            out.writeInt(maxSeeds);
+            out.writeInt(0);
+            out.write(generator.results);
+        }
+
+        System.out.format("%d positions solved in %.1f s, %d bytes written"
+            + "%n", generator.results.length, elapsed / 1e9,
+            EndgameTablebase.HEADER_BYTES + generator.results.length);
+    }
+
+    /**
+     * Solves all distributions of seeds over the pits from a given pit on,
+     * for both players on turn.
+     *
+     * @param seeds The seeds of the pits before the given one, indexed by pit
+     *        number. The stores stay empty.
+     * @param pit The next pit to fill.
+     * @param remainingSeeds The number of seeds left for this and the
+     *        following pits.
+     */
+    private void solveAll(int[] seeds, int pit, int remainingSeeds) {
+        if (pit == humanStore) {
+            pit++;
+        }
+        if (pit == machineStore) {
+            solve(new PackedBoard(pitsPerPlayer, seeds, Player.HUMAN));
+            solve(new PackedBoard(pitsPerPlayer, seeds, Player.MACHINE));
+            return;
+        }
+
+        for (int value = 0; value <= remainingSeeds; value++) {
+            seeds[pit] = value;
+            solveAll(seeds, pit + 1, remainingSeeds - value);
+        }
+        seeds[pit] = 0;
+    }
+
+    /**
+     * Calculates the number of seeds in the pits which the machine gains
+     * beyond the human with perfect play, and stores it unless the game is
+     * over.
+     *
+     * @param board The board, which is not changed.
+     * @return The gain of the machine.
+     */
+    private int solve(PackedBoard board) {
+        int index = (int) layout.index(board::getSeeds,
+            board.getOpeningPlayer());
+        if (board.isGameOver()) {
+            // The seeds left in the pits belong to their owners.
+            int gain = board.getSeedsOfPlayer(Player.MACHINE)
+                - board.getSeeds(machineStore)
+                - board.getSeedsOfPlayer(Player.HUMAN)
+                + board.getSeeds(humanStore);
+            results[index] = (byte) gain;
+            return gain;
+        }
+        if (results[index] != UNSOLVED) {
+            return results[index];
+        }
+
+        Player player = board.getOpeningPlayer();
+        int firstPit = player == Player.HUMAN ? 1 : humanStore + 1;
+        int storeDifference = storeDifference(board);
+        int best = 0;
+        boolean hasMove = false;
+        for (int pit = firstPit; pit < firstPit + pitsPerPlayer; pit++) {
+            if (board.getSeeds(pit) == 0) {
+                continue;
+            }
+            PackedBoard child = board.copy();
+            child.applyMove(pit);
+            int gain = storeDifference(child) - storeDifference
+                + solve(child);
+
+            if (!hasMove || (player == Player.MACHINE ? gain > best
+                : gain < best)) {
+                best = gain;
+                hasMove = true;
+            }
+        }
+
+        results[index] = (byte) best;
+        return best;
+    }
+
+    /**
+     * Calculates the difference of the stores.
+     *
+     * @param board The board.
+     * @return The seeds in the store of the machine minus those in the store
+     *         of the human.
+     */
+    private int storeDifference(PackedBoard board) {
+        return board.getSeeds(machineStore) - board.getSeeds(humanStore);
+    }
+
+}
@@ -0,0 +1,625 @@
+package kalah.tools;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import kalah.minimax.ScoreTable;
+import kalah.minimax.SearchMode;
+import kalah.model.Board;
+import kalah.model.BoardImpl;
+import kalah.model.EvalParams;
+import kalah.model.Player;
+import kalah.model.UndoRecord;
+
+/**
+ * Plays machine against machine games between engine configurations without
+ * any user interaction. Every pair of engines plays the same openings, each
+ * reached by a few random plies from the initial board, once with either
+ * engine on each side, so that neither profits from a lucky opening. The
+ * games run in parallel on a pool of worker threads.
+ *
+ * For every pair, the tool prints the wins, draws and losses, the share of
+ * points and the Elo difference with its 95% confidence interval. For every
+ * engine, it prints the score against the whole field and the percentiles
+ * of the time per move.
+ *
+ * An engine is given as
+ * {@code <search mode>:<level>[:<threads>[:<evaluation parameters>]]}, e.g.,
+ * {@code alpha_beta:6} or {@code lazy_smp:8:2:tuned.properties}, with one
+ * thread and the default {@link EvalParams} by default.
+ *
+ * With {@code --log}, the games are written to a file for
+ * {@link EvalTuner}, one line per game: the board size as
+ * {@code <pits>x<seeds>}, the opening player, the winner ({@code NONE} for a
+ * tie) and the source pits of all moves, separated by spaces.
+ *
+ * Usage: {@code Tournament [--openings <n>] [--size <pits>x<seeds>]
+ * [--plies <n>] [--workers <n>] [--seed <n>] [--log <file>] <engine>
+ * <engine> ...} with 50 openings of 2 plies on the board 6x4 by default.
+ */
+public final class Tournament {
+
+    private static final int TABLE_SIZE_MB = 4;
+
+    /**
+     * The percentiles of the time per move which are printed.
+     */
+    private static final double[] PERCENTILES = {50, 90, 99, 100};
+
+    private final Engine[] engines;
+    private final int openings;
+    private final int pitsPerPlayer;
+    private final int seedsPerPit;
+    private final int plies;
+    private final long seed;
+
+    /**
+     * Instantiates a new {@link Tournament} object.
+     *
+     * @param engines The engines.
+     * @param openings The number of openings per pair of engines.
+     * @param pitsPerPlayer The number of pits per player.
+     * @param seedsPerPit The initial number of seeds per pit.
+     * @param plies The number of random plies of an opening.
+     * @param seed The seed of the random plies.
+     */
+    private Tournament(Engine[] engines, int openings, int pitsPerPlayer,
+        int seedsPerPit, int plies, long seed) {
+        this.engines = engines;
+        this.openings = openings;
+        this.pitsPerPlayer = pitsPerPlayer;
+        this.seedsPerPit = seedsPerPit;
+        this.plies = plies;
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the tournament.
+     *
+     * @param args The options and at least two engines.
+     * @throws IOException If evaluation parameters cannot be read or the log
+     *         cannot be written.
+     * @throws InterruptedException If interrupted while waiting for the
+     *         games.
+     * @throws ExecutionException If a game failed.
+     */
+    public static void main(String[] args)
+        throws IOException, InterruptedException, ExecutionException {
+        int openings = 50;
+        int pitsPerPlayer = 6;
+        int seedsPerPit = 4;
+        int plies = 2;
+        int workers = Runtime.getRuntime().availableProcessors();
+        long seed = 42;
+        String log = null;
+        List<Engine> engines = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "--openings":
+                openings = Integer.parseInt(args[++i]);
+                break;
+            case "--size":
+                String[] size = args[++i].split("x");
+                pitsPerPlayer = Integer.parseInt(size[0]);
+                seedsPerPit = Integer.parseInt(size[1]);
+                break;
+            case "--plies":
+                plies = Integer.parseInt(args[++i]);
+                break;
+            case "--workers":
+                workers = Integer.parseInt(args[++i]);
+                break;
+            case "--seed":
+                seed = Long.parseLong(args[++i]);
+                break;
+            case "--log":
+                log = args[++i];
+                break;
+            default:
+                engines.add(Engine.parse(args[i]));
+                break;
+            }
+        }
+        if (engines.size() < 2) {
+            System.out.println("Usage: Tournament [--openings <n>] [--size "
+                + "<pits>x<seeds>] [--plies <n>] [--workers <n>] "
+                + "[--seed <n>] [--log <file>] <engine> <engine> ...");
+            System.exit(2);
+        }
+
+        Tournament tournament = new Tournament(
+            engines.toArray(new Engine[0]), openings, pitsPerPlayer,
+            seedsPerPit, plies, seed);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            long start = System.nanoTime();
+            List<Game> games = tournament.play(executor);
+            tournament.report(games, (System.nanoTime() - start) / 1e9);
+            if (log != null) {
+                tournament.writeLog(games, log);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Plays all games of the tournament.
+     *
+     * @param executor The executor to run the games on.
+     * @return The finished games.
+     * @throws InterruptedException If interrupted while waiting for the
+     *         games.
+     * @throws ExecutionException If a game failed.
+     */
+    private List<Game> play(ExecutorService executor)
+        throws InterruptedException, ExecutionException {
+        List<Future<Game>> futures = new ArrayList<>();
+        for (int opening = 0; opening < openings; opening++) {
+            for (int first = 0; first < engines.length; first++) {
+                for (int second = first + 1; second < engines.length;
+                    second++) {
+                    Game game = new Game(opening, first, second);
+                    Game reverse = new Game(opening, second, first);
+                    futures.add(executor.submit(() -> play(game)));
+                    futures.add(executor.submit(() -> play(reverse)));
+                }
+            }
+        }
+
+        List<Game> games = new ArrayList<>();
+        for (Future<Game> future : futures) {
+            games.add(future.get());
+        }
+
+        return games;
+    }
+
+    /**
+     * Plays a single game from its opening to the end.
+     *
+     * @param game The game to play.
+     * @return The finished game.
+     */
+    private Game play(Game game) {
+        BoardImpl opening = opening(game);
+
+        // Each engine keeps its own transposition table for the game, since
+        // the board carries the table of whoever is on turn.
+        Engine[] sides = {engines[game.machine], engines[game.human]};
+        ScoreTable[] tables = new ScoreTable[2];
+        for (int side = 0; side < 2; side++) {
+            tables[side] = sides[side].mode.createTable(TABLE_SIZE_MB);
+        }
+
+        Board board = opening;
+        while (!board.isGameOver()) {
+            int side = board.getOpeningPlayer() == Player.MACHINE ? 0 : 1;
+            BoardImpl current = (BoardImpl) board;
+            sides[side].configure(current, tables[side]);
+
+            long start = System.nanoTime();
+            board = current.searchMove();
+            game.record(side, System.nanoTime() - start);
+            game.recordPit(board.sourcePitOfLastMove());
+        }
+        game.winner = board.getWinner();
+
+        return game;
+    }
+
+    /**
+     * Creates the board of an opening by random plies from the initial
+     * board, which the human opens. Every opening number always yields the
+     * same board.
+     *
+     * @param game The game, which records the plies.
+     * @return The board after the random plies, which might be game over.
+     */
+    private BoardImpl opening(Game game) {
+        Random random = new Random(seed * 31 + game.opening);
+        BoardImpl board = new BoardImpl(Player.HUMAN, pitsPerPlayer,
+            seedsPerPit, 1);
+        UndoRecord record = new UndoRecord();
+        for (int i = 0; i < plies && !board.isGameOver(); i++) {
+            int pit = Corpus.randomPit(board, random);
+            board.applyMove(pit, record);
+            game.recordPit(pit);
+        }
+
+        return board;
+    }
+
+    /**
+     * Writes the moves and outcomes of the games to a file.
+     *
+     * @param games The finished games.
+     * @param file The path of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeLog(List<Game> games, String file) throws IOException {
+        try (PrintWriter out = new PrintWriter(
+            Files.newBufferedWriter(Paths.get(file)))) {
+            for (Game game : games) {
+                StringBuilder line = new StringBuilder();
+                line.append(pitsPerPlayer).append('x').append(seedsPerPit)
+                    .append(' ').append(Player.HUMAN).append(' ')
+                    .append(game.winner);
+                for (int i = 0; i < game.plyCount; i++) {
+                    line.append(' ').append(game.pits[i]);
+                }
+                out.println(line);
+            }
+        }
+        System.out.format("%n%d games written to %s%n", games.size(), file);
+    }
+
+    /**
+     * Prints the results of the pairs of engines and of every engine.
+     *
+     * @param games The finished games.
+     * @param seconds The duration of the tournament in seconds.
+     */
+    private void report(List<Game> games, double seconds) {
+        System.out.format("%d games on %dx%d in %.1f s%n", games.size(),
+            pitsPerPlayer, seedsPerPit, seconds);
+        for (int i = 0; i < engines.length; i++) {
+            System.out.format("  %c  %s%n", name(i), engines[i]);
+        }
+
+        System.out.format("%n%-6s %6s %6s %6s %6s %7s %8s %7s%n", "pair",
+            "games", "wins", "draws", "losses", "score", "elo", "+/-");
+        for (int first = 0; first < engines.length; first++) {
+            for (int second = first + 1; second < engines.length; second++) {
+                Record record = new Record();
+                for (Game game : games) {
+                    record.add(game, first, second);
+                }
+                System.out.format("%c-%c    %6d %6d %6d %6d %7.3f %s%n",
+                    name(first), name(second), record.games(), record.wins,
+                    record.draws, record.losses, record.score(),
+                    record.elo());
+            }
+        }
+
+        System.out.format("%n%-6s %6s %7s %8s %7s %8s", "engine", "games",
+            "score", "elo", "+/-", "moves");
+        for (double percentile : PERCENTILES) {
+            System.out.format(" %8s", percentile == 100 ? "max ms"
+                : String.format("p%.0f ms", percentile));
+        }
+        System.out.println();
+        for (int engine = 0; engine < engines.length; engine++) {
+            Record record = new Record();
+            List<long[]> times = new ArrayList<>();
+            int moves = 0;
+            for (Game game : games) {
+                for (int other = 0; other < engines.length; other++) {
+                    if (other != engine) {
+                        record.add(game, engine, other);
+                    }
+                }
+                int side = game.sideOf(engine);
+                if (side >= 0) {
+                    times.add(Arrays.copyOf(game.nanos[side],
+                        game.moves[side]));
+                    moves += game.moves[side];
+                }
+            }
+
+            long[] nanos = new long[moves];
+            int offset = 0;
+            for (long[] part : times) {
+                System.arraycopy(part, 0, nanos, offset, part.length);
+                offset += part.length;
+            }
+            Arrays.sort(nanos);
+
+            System.out.format("%c      %6d %7.3f %s %8d", name(engine),
+                record.games(), record.score(), record.elo(), moves);
+            for (double percentile : PERCENTILES) {
+                System.out.format(" %8.2f", percentile(nanos, percentile)
+                    / 1e6);
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * Gets the short name of an engine in the tables.
+     *
+     * @param engine The index of the engine.
+     * @return A letter.
+     */
+    private static char name(int engine) {
+        return (char) ('A' + engine);
+    }
+
+    /**
+     * Gets a percentile of sorted values by the nearest rank.
+     *
+     * @param sorted The values in ascending order.
+     * @param percentile The percentile between 0 and 100.
+     * @return The value, {@code 0} if there are none.
+     */
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * The settings of the machine which make up an engine.
+     */
+    private static final class Engine {
+
+        private final SearchMode mode;
+        private final int level;
+        private final int threads;
+        private final EvalParams params;
+        private final String paramsFile;
+
+        /**
+         * Instantiates a new {@link Engine} object.
+         *
+         * @param mode The search mode.
+         * @param level The level.
+         * @param threads The number of threads of the search.
+         * @param paramsFile The path of the evaluation parameters,
+         *        {@code null} for the default ones.
+         * @throws IOException If the evaluation parameters cannot be read.
+         */
+        private Engine(SearchMode mode, int level, int threads,
+            String paramsFile) throws IOException {
+            this.mode = mode;
+            this.level = level;
+            this.threads = threads;
+            this.paramsFile = paramsFile;
+            this.params = paramsFile != null
+                ? EvalParams.read(Paths.get(paramsFile)) : EvalParams.DEFAULT;
+        }
+
+        /**
+         * Parses an engine of the command line.
+         *
+         * @param spec The search mode, level, optional number of threads and
+         *        optional path of the evaluation parameters, separated by
+         *        colons.
+         * @return The engine.
+         * @throws IOException If the evaluation parameters cannot be read.
+         * @throws IllegalArgumentException If the engine is malformed.
+         */
+        static Engine parse(String spec) throws IOException {
+            String[] parts = spec.split(":", 4);
+            if (parts.length < 2) {
+                throw new IllegalArgumentException(
+                    "Error! Invalid engine: " + spec);
+            }
+            return new Engine(
+                SearchMode.valueOf(parts[0].toUpperCase(Locale.ROOT)),
+                Integer.parseInt(parts[1]),
+                parts.length > 2 ? Integer.parseInt(parts[2]) : 1,
+                parts.length > 3 ? parts[3] : null);
+        }
+
+        /**
+         * Applies the settings of this engine to a board before it moves.
+         *
+         * @param board The board.
+         * @param table The transposition table of this engine.
+         */
+        void configure(BoardImpl board, ScoreTable table) {
+            board.setSearchMode(mode);
+            board.setLevel(level);
+            board.setThreads(threads);
+            board.setTranspositionTable(table);
+            board.setEvalParams(params);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return mode.name().toLowerCase(Locale.ROOT) + ":" + level + ":"
+                + threads + (paramsFile != null ? ":" + paramsFile : "");
+        }
+
+    }
+
+    /**
+     * A single game between two engines and its outcome.
+     */
+    private static final class Game {
+
+        private final int opening;
+        private final int machine;
+        private final int human;
+
+        /**
+         * The times per move in nanoseconds, indexed by side, {@code 0} for
+         * the machine and {@code 1} for the human.
+         */
+        private final long[][] nanos = {new long[16], new long[16]};
+        private final int[] moves = new int[2];
+
+        /**
+         * The source pits of all plies, the random ones of the opening
+         * included.
+         */
+        private int[] pits = new int[64];
+        private int plyCount;
+        private Player winner;
+
+        /**
+         * Instantiates a new {@link Game} object.
+         *
+         * @param opening The number of the opening.
+         * @param machine The index of the engine playing for the machine.
+         * @param human The index of the engine playing for the human.
+         */
+        Game(int opening, int machine, int human) {
+            this.opening = opening;
+            this.machine = machine;
+            this.human = human;
+        }
+
+        /**
+         * Records the time of a move.
+         *
+         * @param side The side which moved.
+         * @param elapsed The time of the move in nanoseconds.
+         */
+        void record(int side, long elapsed) {
+            if (moves[side] == nanos[side].length) {
+                nanos[side] = Arrays.copyOf(nanos[side], 2 * moves[side]);
+            }
+            nanos[side][moves[side]++] = elapsed;
+        }
+
+        /**
+         * Records the source pit of a ply.
+         *
+         * @param pit The number of the pit.
+         */
+        void recordPit(int pit) {
+            if (plyCount == pits.length) {
+                pits = Arrays.copyOf(pits, 2 * plyCount);
+            }
+            pits[plyCount++] = pit;
+        }
+
+        /**
+         * Gets the side an engine plays in this game.
+         *
+         * @param engine The index of the engine.
+         * @return {@code 0} for the machine, {@code 1} for the human and
+         *         {@code -1} if the engine does not play.
+         */
+        int sideOf(int engine) {
+            return engine == machine ? 0 : engine == human ? 1 : -1;
+        }
+
+    }
+
+    /**
+     * The wins, draws and losses of an engine against another one.
+     */
+    private static final class Record {
+
+        /**
+         * The two-sided 95% quantile of the normal distribution.
+         */
+        private static final double Z_95 = 1.96;
+
+        private int wins;
+        private int draws;
+        private int losses;
+
+        /**
+         * Counts a game if it has been played between two engines.
+         *
+         * @param game The game.
+         * @param engine The index of the engine whose record this is.
+         * @param opponent The index of the opponent.
+         */
+        void add(Game game, int engine, int opponent) {
+            int side = game.sideOf(engine);
+            if (side < 0 || game.sideOf(opponent) != 1 - side) {
+                return;
+            }
+
+            Player player = side == 0 ? Player.MACHINE : Player.HUMAN;
+            if (game.winner == Player.NONE) {
+                draws++;
+            } else if (game.winner == player) {
+                wins++;
+            } else {
+                losses++;
+            }
+        }
+
+        /**
+         * Gets the number of counted games.
+         *
+         * @return The number of games.
+         */
+        int games() {
+            return wins + draws + losses;
+        }
+
+        /**
+         * Gets the share of points, counting a draw as half a win.
+         *
+         * @return The score between 0 and 1, {@code NaN} without games.
+         */
+        double score() {
+            return (wins + draws / 2.0) / games();
+        }
+
+        /**
+         * Formats the Elo difference which corresponds to the score and the
+         * half width of its 95% confidence interval, which follows from the
+         * standard deviation of the points of the single games.
+         *
+         * @return The formatted difference and interval.
+         */
+        String elo() {
+            int games = games();
+            double score = score();
+            double variance = (wins * Math.pow(1 - score, 2)
+                + draws * Math.pow(0.5 - score, 2)
+                + losses * Math.pow(score, 2)) / games;
+            double error = Z_95 * Math.sqrt(variance / games);
+            double elo = elo(score);
+            double margin = (elo(score + error) - elo(score - error)) / 2;
+
+            return String.format("%8s %7s", format(elo), format(margin));
+        }
+
+        /**
+         * Converts a score into an Elo difference.
+         *
+         * @param score The expected score.
+         * @return The Elo difference, infinite for scores of 0 or 1.
+         */
+        private static double elo(double score) {
+            if (score <= 0) {
+                return Double.NEGATIVE_INFINITY;
+            } else if (score >= 1) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return -400 * Math.log10(1 / score - 1);
+        }
+
+        /**
+         * Formats an Elo value.
+         *
+         * @param elo The value.
+         * @return The rounded value, "inf" or "-inf".
+         */
+        private static String format(double elo) {
+            if (Double.isNaN(elo)) {
+                return "-";
+            } else if (Double.isInfinite(elo)) {
+                return elo > 0 ? "inf" : "-inf";
+            }
+            // Adding zero turns a negative zero into a positive one.
+            return String.format("%.0f", elo + 0.0);
+        }
+
+    }
+
+}
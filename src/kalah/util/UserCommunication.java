@@ -40,6 +40,46 @@ public final class UserCommunication {
      */
     public static final String MACHINE_MOVE = "Machine chose pit %d with seeds "
         + "reaching pit %d.%n";
+
+    /**
+     * Used for showing the statistics of the last search of the machine.
+     */
+    public static final String SEARCH_STATS = "Searched %d nodes (%d "
+        + "expanded, %d leaves) up to depth %d in %d ms, %.0f nodes/s.%n"
+        + "Branching factor %.2f, %d cut-offs (%d by the first move), %d of "
+        + "%d table probes hit.%n";
+
+    /**
+     * Used instead of the statistics if the last move of the machine came from
+     * the opening book.
+     */
+    public static final String BOOK_MOVE = "The last move of the machine came "
+        + "from the opening book.";
+
+    /**
+     * Used if the endgame tablebase given on the command line cannot be read.
+     */
+    public static final String TABLEBASE_UNREADABLE = "Cannot read the endgame "
+        + "tablebase: %s%n";
+
+    /**
+     * Used if the opening book given on the command line cannot be read.
+     */
+    public static final String BOOK_UNREADABLE = "Cannot read the opening "
+        + "book: %s%n";
+
+    /**
+     * Used if the evaluation parameters given on the command line cannot be
+     * read.
+     */
+    public static final String EVAL_UNREADABLE = "Cannot read the evaluation "
+        + "parameters: %s%n";
+
+    /**
+     * Used if the protocol given on the command line is unknown.
+     */
+    public static final String PROTOCOL_UNKNOWN = "Unknown protocol %s, "
+        + "expected json or compact.%n";
     /**
      * Holds error codes and it's associated messages to inform the user in case
      * of an error.
@@ -62,9 +102,12 @@ public final class UserCommunication {
                 put(103, "Parameter must be positive and not zero.");
                 put(104, "Wrong number of arguments: +1 integers expected.");
                 put(105, "The level must be a number.");
+                put(106, "The time budget must be a number.");
+                put(107, "The time budget must not be negative.");
 
                 put(200, "You must enter a command.");
                 put(201, "You must specify a level.");
+                put(202, "You must specify a time budget.");
 
                 put(300, "No game started yet.");
                 put(301, "The game is already over!");
@@ -74,6 +117,12 @@ public final class UserCommunication {
                 put(401, "The pit is not on the grid!");
                 put(402, "Invalid move!");
                 put(403, "Level must be between 1 and 7");
+                put(404, "The machine has not moved yet.");
+
+                put(500, "The search time of this session is used up.");
+                put(501, "Too many sessions, try again later.");
+                put(502, "The server is busy, try again later.");
+                put(503, "The command failed unexpectedly.");
             }
         };
 